@@ -0,0 +1,82 @@
+package org.djar.football.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.djar.football.model.event.GoalScored;
+import org.djar.football.model.event.MatchStarted;
+import org.djar.football.model.view.MatchScore;
+import org.djar.football.model.view.PlayerGoals;
+import org.djar.football.model.view.TeamRanking;
+import org.djar.football.model.view.TopPlayers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The aggregators of the views, as called by the Kafka Streams reducers and aggregators.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregationBenchmark {
+
+    @Param({"10"})
+    public int topPlayersLimit;
+
+    private final MatchStarted matchStarted = new MatchStarted("Match-2017-2018-Champ-001", "Sunderland",
+        "Derby County");
+    private final GoalScored homeGoal = new GoalScored("Goal-2017-2018-Champ-001-01", "Match-2017-2018-Champ-001",
+        23, "1274", "Sunderland");
+
+    private TopPlayers topPlayers;
+    private PlayerGoals[] scorers;
+    private int nextScorer;
+    private MatchScore matchScore;
+    private TeamRanking ranking;
+
+    @Setup
+    public void setUp() {
+        topPlayers = Samples.topPlayers(topPlayersLimit);
+        // half of the scorers are already in the top list, the other half enter it
+        scorers = new PlayerGoals[topPlayersLimit * 2];
+
+        for (int i = 0; i < scorers.length; i++) {
+            scorers[i] = new PlayerGoals(String.valueOf(1000 + i), "Player " + i);
+            scorers[i].setGoals(i % (topPlayersLimit + 1));
+        }
+        matchScore = new MatchScore(matchStarted);
+        ranking = new TeamRanking("Sunderland", 0, 0, 0, 0, 0, 0);
+    }
+
+    @Benchmark
+    public TopPlayers topPlayersAggregate() {
+        PlayerGoals scorer = scorers[nextScorer];
+        nextScorer = (nextScorer + 1) % scorers.length;
+        return topPlayers.aggregate(scorer);
+    }
+
+    @Benchmark
+    public MatchScore matchScoreGoal() {
+        return new MatchScore(matchStarted).goal(homeGoal);
+    }
+
+    @Benchmark
+    public MatchScore matchScoreAggregate() {
+        return matchScore.aggregate(new MatchScore(matchStarted).goal(homeGoal));
+    }
+
+    @Benchmark
+    public TeamRanking teamRankingAggregate() {
+        return ranking.aggregate(matchScore.homeRanking());
+    }
+}
@@ -0,0 +1,59 @@
+package org.djar.football.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.djar.football.stream.DebeziumEnvelope;
+import org.djar.football.stream.DebeziumEnvelopeDeserializer;
+import org.djar.football.stream.JsonNodeSerde;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reading a player change event produced by Debezium: the JSON tree (as it used to be done in football-player)
+ * vs the streaming parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DebeziumParserBenchmark {
+
+    private final JsonNodeSerde treeSerde = new JsonNodeSerde();
+    private final DebeziumEnvelopeDeserializer streamingDeserializer = new DebeziumEnvelopeDeserializer("id", "name");
+
+    private byte[] message;
+
+    @Setup
+    public void setUp() throws IOException {
+        message = Resources.load("/org/djar/football/player/connect/player-inserted.json");
+    }
+
+    @Benchmark
+    public void tree(Blackhole blackhole) {
+        JsonNode json = treeSerde.deserialize(null, message);
+        JsonNode payload = json.get("payload");
+        blackhole.consume(payload.get("op").textValue());
+        blackhole.consume(String.valueOf(payload.get("after").get("id").intValue()));
+        blackhole.consume(payload.get("after").get("name").textValue());
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) {
+        DebeziumEnvelope change = streamingDeserializer.deserialize(null, message);
+        blackhole.consume(change.getOp());
+        blackhole.consume(change.after("id"));
+        blackhole.consume(change.after("name"));
+    }
+}
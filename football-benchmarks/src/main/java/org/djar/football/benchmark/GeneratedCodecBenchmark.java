@@ -0,0 +1,73 @@
+package org.djar.football.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.djar.football.model.view.PlayerGoals;
+import org.djar.football.model.view.TopPlayers;
+import org.djar.football.stream.JsonPojoSerde;
+import org.djar.football.stream.SerdeRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The generated codec (used by {@link JsonPojoSerde}) vs Jackson data binding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratedCodecBenchmark {
+
+    private static final String TOPIC = "fb-view.top-players";
+
+    private final JsonPojoSerde<TopPlayers> serde = SerdeRegistry.serde(TopPlayers.class);
+    private final ObjectWriter writer = SerdeRegistry.mapper().writerFor(TopPlayers.class);
+    private final ObjectReader reader = SerdeRegistry.mapper().readerFor(TopPlayers.class);
+
+    private TopPlayers topPlayers;
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        topPlayers = new TopPlayers(10);
+
+        for (int i = 0; i < 10; i++) {
+            PlayerGoals player = new PlayerGoals(String.valueOf(i), "Player " + i);
+            player.setGoals(i);
+            topPlayers.aggregate(player);
+        }
+        data = serde.serialize(TOPIC, topPlayers);
+    }
+
+    @Benchmark
+    public byte[] writeGenerated() {
+        return serde.serialize(TOPIC, topPlayers);
+    }
+
+    @Benchmark
+    public byte[] writeDataBinding() throws IOException {
+        return writer.writeValueAsBytes(topPlayers);
+    }
+
+    @Benchmark
+    public TopPlayers readGenerated() {
+        return serde.deserialize(TOPIC, data);
+    }
+
+    @Benchmark
+    public TopPlayers readDataBinding() throws IOException {
+        return reader.readValue(data);
+    }
+}
@@ -0,0 +1,68 @@
+package org.djar.football.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.djar.football.match.domain.Match;
+import org.djar.football.match.domain.Season;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The mutators of the {@link Match} aggregate, as called by the football-match domain updater. The matches are
+ * created in every invocation, otherwise the goal and card lists would grow without limits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark {
+
+    private final LocalDateTime date = LocalDateTime.of(2018, 5, 6, 15, 0);
+
+    private Season season;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        // SeasonRepository does the same with Spring, which is not on the benchmark classpath
+        Constructor<Season> constructor = Season.class.getDeclaredConstructor(String.class, String.class);
+        constructor.setAccessible(true);
+        season = constructor.newInstance("1", "Season 1");
+    }
+
+    @Benchmark
+    public Match schedule() {
+        return season.scheduleMatch("Match-2017-2018-Champ-001", date, "Sunderland", "Derby County");
+    }
+
+    @Benchmark
+    public Match startAndScore() {
+        Match match = schedule();
+        match.start();
+        match.newGoal("Goal-2017-2018-Champ-001-01", 23, "1274", "Sunderland");
+        return match;
+    }
+
+    @Benchmark
+    public Match fullMatch() {
+        Match match = schedule();
+        match.start();
+        match.newGoal("Goal-2017-2018-Champ-001-01", 23, "1274", "Sunderland");
+        match.newYellowCard("Card-2017-2018-Champ-001-01", 31, "1280");
+        match.newGoal("Goal-2017-2018-Champ-001-02", 57, "1301", "Derby County");
+        match.newRedCard("Card-2017-2018-Champ-001-02", 78, "1301");
+        match.newGoal("Goal-2017-2018-Champ-001-03", 89, "1274", "Sunderland");
+        match.finish();
+        return match;
+    }
+}
@@ -0,0 +1,208 @@
+package org.djar.football.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.TopologyDescription;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.ConsumerRecordFactory;
+import org.djar.football.match.repo.SeasonRepository;
+import org.djar.football.match.snapshot.DomainUpdater;
+import org.djar.football.model.event.CardReceived;
+import org.djar.football.model.event.Event;
+import org.djar.football.model.event.GoalScored;
+import org.djar.football.model.event.MatchFinished;
+import org.djar.football.model.event.MatchScheduled;
+import org.djar.football.model.event.MatchStarted;
+import org.djar.football.model.event.PlayerStartedCareer;
+import org.djar.football.stream.EventIdGenerator;
+import org.djar.football.stream.SerdeRegistry;
+import org.djar.football.stream.StreamsUtils;
+import org.djar.football.util.Topics;
+import org.djar.football.view.basic.StatisticsBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Replay of the EFL Championship 2017/2018 season (the football-tests demo data) through the topologies of
+ * football-match and football-view-basic, as built for the exactly_once mode and for the at_least_once mode with
+ * the deduplication of the applied events. The test driver doesn't support transactions and commits after every
+ * record (flushing the stores, as with the commit interval of exactly_once), so the result is the cost of
+ * the deduplication only, the commits saved by at_least_once need a cluster to be measured. For the same reason
+ * the object cache of football-match saves the decoding only, the changes are written after every record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReplayBenchmark {
+
+    private static final String SEASON_FILE = "/EFL-Championship-2017-2018.txt";
+    private static final Pattern PLAYER_INSERT = Pattern.compile("VALUES \\((\\d+), '(.*)', '\\$\\{0\\}'\\)");
+
+    @Param({"exactly_once", "at_least_once"})
+    public String processingGuarantee;
+
+    @Param({"match", "view-basic"})
+    public String service;
+
+    // the aggregates kept as objects by football-match, 0: decoded and encoded on every event
+    @Param({"1000", "0"})
+    public int objectCacheSize;
+
+    private List<ConsumerRecord<byte[], byte[]>> records;
+    private Path stateDir;
+    private TopologyTestDriver driver;
+
+    @Setup
+    public void setUp() throws IOException {
+        ConsumerRecordFactory<String, Object> factory = new ConsumerRecordFactory<>(new StringSerializer(),
+            SerdeRegistry.serde(Object.class));
+        Set<String> sourceTopics = sourceTopics(topology());
+        records = new ArrayList<>();
+
+        for (Event event : season()) {
+            String topic = Topics.eventTopicName(event.getClass());
+
+            if (sourceTopics.contains(topic)) {
+                records.add(factory.create(topic, event.getAggId(), event, event.getMetadata().getTimestamp()));
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startDriver() throws IOException {
+        stateDir = Files.createTempDirectory("replay_benchmark");
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "ReplayBenchmark");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(topology(), props);
+    }
+
+    private Topology topology() {
+        StreamsUtils.setDeduplication(StreamsConfig.AT_LEAST_ONCE.equals(processingGuarantee));
+        StreamsUtils.setObjectCacheSize(objectCacheSize);
+
+        if (service.equals("match")) {
+            Topology topology = new Topology();
+            new DomainUpdater(new SeasonRepository()).init(topology);
+            return topology;
+        }
+        StreamsBuilder builder = new StreamsBuilder();
+        new StatisticsBuilder(builder).build();
+        return builder.build();
+    }
+
+    private static Set<String> sourceTopics(Topology topology) {
+        Set<String> topics = new HashSet<>();
+
+        for (TopologyDescription.Subtopology subtopology : topology.describe().subtopologies()) {
+            topics.addAll(StreamsUtils.sourceTopics(subtopology));
+        }
+        return topics;
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopDriver() throws IOException {
+        driver.close();
+        FileSystemUtils.deleteRecursively(stateDir);
+    }
+
+    @Benchmark
+    public TopologyTestDriver replay() {
+        for (ConsumerRecord<byte[], byte[]> record : records) {
+            driver.pipeInput(record);
+        }
+        return driver;
+    }
+
+    // the events published by football-match for the requests of the demo
+    private static List<Event> season() throws IOException {
+        ObjectMapper mapper = SerdeRegistry.mapper();
+        EventIdGenerator idGenerator = new EventIdGenerator("ReplayBenchmark");
+        Map<String, String[]> clubs = new HashMap<>();
+        List<Event> events = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                ReplayBenchmark.class.getResourceAsStream(SEASON_FILE), StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split("\t");
+                Event event;
+
+                if (columns[1].startsWith("INSERT")) {
+                    Matcher matcher = PLAYER_INSERT.matcher(columns[1]);
+
+                    if (!matcher.find()) {
+                        continue;
+                    }
+                    event = new PlayerStartedCareer(matcher.group(1), matcher.group(2).replace("''", "'"));
+                } else {
+                    JsonNode body = mapper.readTree(columns[3]);
+                    String[] path = columns[2].substring(columns[2].indexOf("/matches")).split("/");
+
+                    if (path.length == 2) {
+                        String[] match = {body.get("homeClubId").asText(), body.get("awayClubId").asText()};
+                        clubs.put(body.get("id").asText(), match);
+                        event = new MatchScheduled(body.get("id").asText(), body.get("seasonId").asText(),
+                            LocalDateTime.parse(columns[5]), match[0], match[1]);
+                    } else if (path.length == 3) {
+                        String[] match = clubs.get(path[2]);
+                        event = body.get("newState").asText().equals("STARTED")
+                            ? new MatchStarted(path[2], match[0], match[1]) : new MatchFinished(path[2]);
+                    } else if (path[3].equals("cards")) {
+                        event = new CardReceived(body.get("id").asText(), path[2], body.get("minute").asInt(),
+                            body.get("receiverId").asText(), CardReceived.Type.valueOf(body.get("type").asText()));
+                    } else {
+                        String[] match = clubs.get(path[2]);
+                        event = new GoalScored(body.get("id").asText(), path[2], body.get("minute").asInt(),
+                            body.get("scorerId").asText(), path[3].equals("homeGoals") ? match[0] : match[1]);
+                    }
+                }
+                event.getMetadata().setEventId(idGenerator.next());
+                event.getMetadata().setProcessId("ReplayBenchmark");
+                event.timestamp(LocalDateTime.parse(columns[0]).toInstant(ZoneOffset.UTC).toEpochMilli());
+                events.add(event);
+            }
+        }
+        return events;
+    }
+}
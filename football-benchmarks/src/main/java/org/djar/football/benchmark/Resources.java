@@ -0,0 +1,19 @@
+package org.djar.football.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+class Resources {
+
+    private Resources() {
+    }
+
+    static byte[] load(String name) throws IOException {
+        try (InputStream input = Resources.class.getResourceAsStream(name)) {
+            if (input == null) {
+                throw new IOException("Resource not found: " + name);
+            }
+            return input.readAllBytes();
+        }
+    }
+}
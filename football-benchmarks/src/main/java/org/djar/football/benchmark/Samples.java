@@ -0,0 +1,86 @@
+package org.djar.football.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.djar.football.model.event.CardReceived;
+import org.djar.football.model.event.Event;
+import org.djar.football.model.event.EventMetadata;
+import org.djar.football.model.event.GoalScored;
+import org.djar.football.model.event.MatchFinished;
+import org.djar.football.model.event.MatchScheduled;
+import org.djar.football.model.event.MatchStarted;
+import org.djar.football.model.event.PlayerStartedCareer;
+import org.djar.football.model.view.MatchScore;
+import org.djar.football.model.view.PlayerCards;
+import org.djar.football.model.view.PlayerGoals;
+import org.djar.football.model.view.TeamRanking;
+import org.djar.football.model.view.TopPlayers;
+
+/**
+ * Typical instances of the events and views, keyed by the simple class name.
+ */
+class Samples {
+
+    private static final Map<String, Object> SAMPLES = new LinkedHashMap<>();
+
+    static {
+        LocalDateTime date = LocalDateTime.of(2018, 5, 6, 15, 0);
+        MatchStarted matchStarted = new MatchStarted("Match-2017-2018-Champ-001", "Sunderland", "Derby County");
+        PlayerStartedCareer player = new PlayerStartedCareer("1274", "Lewis McGugan");
+
+        event(new MatchScheduled("Match-2017-2018-Champ-001", "Championship 2017/2018", date, "Sunderland",
+            "Derby County"));
+        event(matchStarted);
+        event(new GoalScored("Goal-2017-2018-Champ-001-01", "Match-2017-2018-Champ-001", 23, "1274",
+            "Sunderland"));
+        event(new CardReceived("Card-2017-2018-Champ-001-01", "Match-2017-2018-Champ-001", 56, "1274",
+            CardReceived.Type.YELLOW));
+        event(new MatchFinished("Match-2017-2018-Champ-001"));
+        event(player);
+
+        MatchScore matchScore = new MatchScore(matchStarted);
+        matchScore.setHomeGoals(2);
+        matchScore.setAwayGoals(1);
+        SAMPLES.put("MatchScore", matchScore);
+        SAMPLES.put("TeamRanking", new TeamRanking("Sunderland", 38, 7, 16, 15, 52, 80));
+        PlayerGoals playerGoals = new PlayerGoals(player);
+        playerGoals.setGoals(12);
+        SAMPLES.put("PlayerGoals", playerGoals);
+        SAMPLES.put("PlayerCards", new PlayerCards(player).card(new CardReceived("Card-2017-2018-Champ-001-01",
+            "Match-2017-2018-Champ-001", 56, "1274", CardReceived.Type.YELLOW)));
+        SAMPLES.put("TopPlayers", topPlayers(10));
+    }
+
+    private Samples() {
+    }
+
+    static Object get(String type) {
+        Object sample = SAMPLES.get(type);
+
+        if (sample == null) {
+            throw new IllegalArgumentException("No sample of " + type);
+        }
+        return sample;
+    }
+
+    static TopPlayers topPlayers(int size) {
+        TopPlayers topPlayers = new TopPlayers(size);
+
+        for (int i = 0; i < size; i++) {
+            PlayerGoals player = new PlayerGoals(String.valueOf(1000 + i), "Player " + i);
+            player.setGoals(size - i);
+            topPlayers.aggregate(player);
+        }
+        return topPlayers;
+    }
+
+    private static void event(Event event) {
+        EventMetadata metadata = event.getMetadata();
+        metadata.setEventId("5a0c6d2f-8f3e-4b3a-9c1e-0d5c2b1e4f6a");
+        metadata.setProcessId("MatchApplication");
+        metadata.setVersion(1);
+        event.timestamp(1525618800000L);
+        SAMPLES.put(event.getClass().getSimpleName(), event);
+    }
+}
@@ -0,0 +1,75 @@
+package org.djar.football.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.concurrent.TimeUnit;
+import org.djar.football.model.event.Event;
+import org.djar.football.stream.JsonNodeSerde;
+import org.djar.football.stream.JsonPojoSerde;
+import org.djar.football.stream.SerdeRegistry;
+import org.djar.football.util.Topics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing and reading every event and view type, as objects ({@link JsonPojoSerde}) and as JSON trees
+ * ({@link JsonNodeSerde}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerdeBenchmark {
+
+    @Param({"MatchScheduled", "MatchStarted", "GoalScored", "CardReceived", "MatchFinished", "PlayerStartedCareer",
+        "MatchScore", "TeamRanking", "PlayerGoals", "PlayerCards", "TopPlayers"})
+    public String type;
+
+    private final JsonNodeSerde nodeSerde = new JsonNodeSerde();
+
+    private JsonPojoSerde<Object> pojoSerde;
+    private String topic;
+    private Object value;
+    private JsonNode tree;
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        value = Samples.get(type);
+        pojoSerde = SerdeRegistry.serde((Class<Object>)value.getClass());
+        topic = value instanceof Event ? Topics.eventTopicName(((Event)value).getClass())
+            : Topics.viewTopicName(value.getClass());
+        data = pojoSerde.serialize(topic, value);
+        tree = nodeSerde.deserialize(topic, data);
+    }
+
+    @Benchmark
+    public byte[] pojoSerialize() {
+        return pojoSerde.serialize(topic, value);
+    }
+
+    @Benchmark
+    public Object pojoDeserialize() {
+        return pojoSerde.deserialize(topic, data);
+    }
+
+    @Benchmark
+    public byte[] nodeSerialize() {
+        return nodeSerde.serialize(topic, tree);
+    }
+
+    @Benchmark
+    public JsonNode nodeDeserialize() {
+        return nodeSerde.deserialize(topic, data);
+    }
+}
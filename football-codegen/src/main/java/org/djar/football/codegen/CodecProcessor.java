@@ -0,0 +1,328 @@
+package org.djar.football.codegen;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a JSON codec for every class annotated with {@link GenerateCodec}. The generated code implements
+ * {@code org.djar.football.stream.JsonCodec} and works with Jackson streaming API only, without reflection:
+ * the fields are written using their accessors and read into a new object using the constructor taking all
+ * of them.
+ */
+@SupportedAnnotationTypes("org.djar.football.codegen.GenerateCodec")
+public class CodecProcessor extends AbstractProcessor {
+
+    private static final String CODEC_SUFFIX = "JsonCodec";
+    private static final String RUNTIME_PACKAGE = "org.djar.football.stream";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateCodec.class)) {
+            try {
+                generate((TypeElement)element);
+            } catch (CodecException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.toString(), element);
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        if (type.getKind() != ElementKind.CLASS || type.getNestingKind() != NestingKind.TOP_LEVEL
+                || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new CodecException("Codecs can be generated for top-level concrete classes only", type);
+        }
+        if (!"java.lang.Object".equals(type.getSuperclass().toString())) {
+            // inherited fields are not supported
+            throw new CodecException("Codecs can't be generated for subclasses", type);
+        }
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String typeName = type.getSimpleName().toString();
+        String codecName = typeName + CODEC_SUFFIX;
+        List<VariableElement> fields = fields(type);
+        checkConstructor(type, fields);
+
+        StringBuilder constants = new StringBuilder();
+        StringBuilder write = new StringBuilder();
+        StringBuilder locals = new StringBuilder();
+        StringBuilder read = new StringBuilder();
+        List<String> arguments = new ArrayList<>();
+
+        for (VariableElement field : fields) {
+            String name = field.getSimpleName().toString();
+            String local = name + "Value";
+            String getter = "value." + accessor(type, field) + "()";
+            TypeMirror fieldType = field.asType();
+
+            locals.append("        ").append(fieldType).append(" ").append(local).append(" = ")
+                .append(initialValue(fieldType)).append(";\n");
+            read.append("                case \"").append(name).append("\":\n");
+            arguments.add(local);
+
+            if (fieldType.getKind().isPrimitive()) {
+                write.append("        generator.").append(primitiveWriter(field)).append("(\"").append(name)
+                    .append("\", ").append(getter).append(");\n");
+                read.append("                    ").append(local).append(" = parser.")
+                    .append(primitiveReader(field)).append("();\n");
+            } else if ("java.lang.String".equals(fieldType.toString())) {
+                write.append("        generator.writeStringField(\"").append(name).append("\", ").append(getter)
+                    .append(");\n");
+                read.append("                    ").append(local).append(" = parser.getValueAsString();\n");
+            } else {
+                String constant = constantName(name);
+                String codec = codec(fieldType, field);
+                constants.append("    private static final JsonCodec<").append(fieldType).append("> ")
+                    .append(constant).append(" = ").append(codec).append(";\n");
+                write.append("        JsonCodecs.writeField(generator, \"").append(name).append("\", ")
+                    .append(getter).append(", ").append(constant).append(");\n");
+                read.append("                    ").append(local).append(" = ").append(constant)
+                    .append(".read(parser);\n");
+            }
+            read.append("                    break;\n");
+        }
+
+        try (Writer out = processingEnv.getFiler().createSourceFile(packageName + "." + codecName, type)
+                .openWriter()) {
+            out.write("package " + packageName + ";\n\n");
+            out.write("import com.fasterxml.jackson.core.JsonGenerator;\n");
+            out.write("import com.fasterxml.jackson.core.JsonParser;\n");
+            out.write("import com.fasterxml.jackson.core.JsonToken;\n");
+            out.write("import java.io.IOException;\n");
+            out.write("import " + RUNTIME_PACKAGE + ".JsonCodec;\n");
+            out.write("import " + RUNTIME_PACKAGE + ".JsonCodecs;\n\n");
+            out.write("@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")\n");
+            out.write("public final class " + codecName + " implements JsonCodec<" + typeName + "> {\n\n");
+            out.write("    public static final " + codecName + " INSTANCE = new " + codecName + "();\n\n");
+            out.write(constants.toString());
+            out.write("\n    private " + codecName + "() {\n    }\n\n");
+            out.write("    @Override\n");
+            out.write("    public void write(JsonGenerator generator, " + typeName + " value) throws IOException {\n");
+            out.write("        if (value == null) {\n");
+            out.write("            generator.writeNull();\n");
+            out.write("            return;\n");
+            out.write("        }\n");
+            out.write("        generator.writeStartObject();\n");
+            out.write(write.toString());
+            out.write("        generator.writeEndObject();\n");
+            out.write("    }\n\n");
+            out.write("    @Override\n");
+            out.write("    public " + typeName + " read(JsonParser parser) throws IOException {\n");
+            out.write("        if (parser.currentToken() == JsonToken.VALUE_NULL) {\n");
+            out.write("            return null;\n");
+            out.write("        }\n");
+            out.write("        JsonCodecs.expect(parser, JsonToken.START_OBJECT);\n");
+            out.write(locals.toString());
+            out.write("\n");
+            out.write("        while (parser.nextToken() == JsonToken.FIELD_NAME) {\n");
+            out.write("            String field = parser.getCurrentName();\n");
+            out.write("            parser.nextToken();\n\n");
+            out.write("            switch (field) {\n");
+            out.write(read.toString());
+            out.write("                default:\n");
+            out.write("                    parser.skipChildren();\n");
+            out.write("            }\n");
+            out.write("        }\n");
+            out.write("        return new " + typeName + "(" + String.join(", ", arguments) + ");\n");
+            out.write("    }\n");
+            out.write("}\n");
+        }
+    }
+
+    // the constructor taking all the serialized fields in their order
+    private void checkConstructor(TypeElement type, List<VariableElement> fields) {
+        Types types = processingEnv.getTypeUtils();
+
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            List<? extends VariableElement> parameters = constructor.getParameters();
+
+            if (parameters.size() != fields.size()) {
+                continue;
+            }
+            boolean matches = true;
+
+            for (int i = 0; i < fields.size() && matches; i++) {
+                matches = types.isSameType(parameters.get(i).asType(), fields.get(i).asType());
+            }
+            if (matches) {
+                if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                    throw new CodecException("The constructor taking all the fields must not be private",
+                        constructor);
+                }
+                return;
+            }
+        }
+        throw new CodecException("No constructor taking all the serialized fields in their order", type);
+    }
+
+    private List<VariableElement> fields(TypeElement type) {
+        List<VariableElement> result = new ArrayList<>();
+
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+
+            if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
+                result.add(field);
+            }
+        }
+        return result;
+    }
+
+    // getName(), isName() or name(), non-private
+    private String accessor(TypeElement type, VariableElement field) {
+        String name = field.getSimpleName().toString();
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        Types types = processingEnv.getTypeUtils();
+
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            String methodName = method.getSimpleName().toString();
+
+            if (method.getParameters().isEmpty() && !method.getModifiers().contains(Modifier.PRIVATE)
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && types.isSameType(method.getReturnType(), field.asType())
+                    && (methodName.equals("get" + capitalized) || methodName.equals("is" + capitalized)
+                        || methodName.equals(name))) {
+                return methodName;
+            }
+        }
+        throw new CodecException("No accessor of the field found: get" + capitalized + "(), is" + capitalized
+            + "() or " + name + "()", field);
+    }
+
+    // the value of a field missing in the JSON document, the collections are created empty like in the classes
+    private String initialValue(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "false";
+            case INT:
+            case LONG:
+            case DOUBLE:
+                return "0";
+            case DECLARED:
+                String name = ((TypeElement)((DeclaredType)type).asElement()).getQualifiedName().toString();
+
+                if ("java.util.List".equals(name)) {
+                    return "new java.util.ArrayList<>()";
+                }
+                if ("java.util.Set".equals(name)) {
+                    return "new java.util.HashSet<>()";
+                }
+                return "null";
+            default:
+                return "null";
+        }
+    }
+
+    private String primitiveWriter(VariableElement field) {
+        switch (field.asType().getKind()) {
+            case BOOLEAN:
+                return "writeBooleanField";
+            case INT:
+            case LONG:
+            case DOUBLE:
+                return "writeNumberField";
+            default:
+                throw new CodecException("Unsupported primitive type", field);
+        }
+    }
+
+    private String primitiveReader(VariableElement field) {
+        switch (field.asType().getKind()) {
+            case BOOLEAN:
+                return "getValueAsBoolean";
+            case INT:
+                return "getValueAsInt";
+            case LONG:
+                return "getValueAsLong";
+            case DOUBLE:
+                return "getValueAsDouble";
+            default:
+                throw new CodecException("Unsupported primitive type", field);
+        }
+    }
+
+    private String codec(TypeMirror type, Element field) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            throw new CodecException("Unsupported type " + type, field);
+        }
+        TypeElement element = (TypeElement)((DeclaredType)type).asElement();
+        String name = element.getQualifiedName().toString();
+
+        switch (name) {
+            case "java.lang.String":
+                return "JsonCodecs.STRING";
+            case "java.lang.Integer":
+                return "JsonCodecs.INTEGER";
+            case "java.lang.Long":
+                return "JsonCodecs.LONG";
+            case "java.lang.Double":
+                return "JsonCodecs.DOUBLE";
+            case "java.lang.Boolean":
+                return "JsonCodecs.BOOLEAN";
+            case "java.time.LocalDateTime":
+                return "JsonCodecs.LOCAL_DATE_TIME";
+            case "java.util.List":
+                return "JsonCodecs.list(" + codec(typeArgument(type, field), field) + ")";
+            case "java.util.Set":
+                return "JsonCodecs.set(" + codec(typeArgument(type, field), field) + ")";
+            default:
+                break;
+        }
+        if (element.getKind() == ElementKind.ENUM) {
+            return "JsonCodecs.enumCodec(" + name + ".class)";
+        }
+        if (element.getAnnotation(GenerateCodec.class) != null) {
+            return name + CODEC_SUFFIX + ".INSTANCE";
+        }
+        throw new CodecException("Unsupported type " + type + ", annotate it with @GenerateCodec", field);
+    }
+
+    private TypeMirror typeArgument(TypeMirror type, Element field) {
+        List<? extends TypeMirror> arguments = ((DeclaredType)type).getTypeArguments();
+
+        if (arguments.size() != 1) {
+            throw new CodecException("Raw collections are not supported", field);
+        }
+        return arguments.get(0);
+    }
+
+    private static String constantName(String fieldName) {
+        return fieldName.replaceAll("(\\p{Lower})(\\p{Upper})", "$1_$2").toUpperCase() + "_CODEC";
+    }
+
+    private static class CodecException extends RuntimeException {
+
+        private final transient Element element;
+
+        CodecException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
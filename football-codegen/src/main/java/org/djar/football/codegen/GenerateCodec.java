@@ -0,0 +1,17 @@
+package org.djar.football.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates {@code <Type>JsonCodec} in the package of the annotated class. The codec writes the non-static,
+ * non-transient fields using their accessors ({@code getName()}, {@code isName()} or {@code name()}) and reads
+ * them into the constructor taking all the fields in their order. The fields can stay private, the accessors and
+ * the constructor have to be at least package-private.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateCodec {
+}
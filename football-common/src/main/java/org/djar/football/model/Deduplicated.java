@@ -0,0 +1,28 @@
+package org.djar.football.model;
+
+import java.util.Set;
+
+/**
+ * An aggregate keeping the ids of the events applied to it, so the events processed again after a failure in
+ * at_least_once mode are recognized. The ids are a field of the aggregate, written to the store together with
+ * the changes they caused. An aggregate applies a few events only (a match, a player), so they are not expired.
+ */
+public interface Deduplicated {
+
+    Set<String> appliedEvents();
+
+    default boolean isApplied(String eventId) {
+        return appliedEvents().contains(eventId);
+    }
+
+    /**
+     * Whether all the events of the other (partial) aggregate are already applied to this one.
+     */
+    default boolean isApplied(Deduplicated other) {
+        return !other.appliedEvents().isEmpty() && appliedEvents().containsAll(other.appliedEvents());
+    }
+
+    default void markApplied(String eventId) {
+        appliedEvents().add(eventId);
+    }
+}
@@ -1,20 +1,37 @@
 package org.djar.football.model.view;
 
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
+import org.djar.football.codegen.GenerateCodec;
+import org.djar.football.model.Deduplicated;
 import org.djar.football.model.event.GoalScored;
 import org.djar.football.model.event.MatchStarted;
 
-public class MatchScore {
+@GenerateCodec
+public class MatchScore implements Deduplicated {
 
     private String matchId;
     private String homeClubId;
     private String awayClubId;
     private int homeGoals;
     private int awayGoals;
+    // the ids of the records aggregated, in at_least_once mode only
+    private Set<String> appliedEvents = new HashSet<>();
 
     public MatchScore() {
     }
 
+    MatchScore(String matchId, String homeClubId, String awayClubId, int homeGoals, int awayGoals,
+            Set<String> appliedEvents) {
+        this.matchId = matchId;
+        this.homeClubId = homeClubId;
+        this.awayClubId = awayClubId;
+        this.homeGoals = homeGoals;
+        this.awayGoals = awayGoals;
+        this.appliedEvents = appliedEvents;
+    }
+
     public MatchScore(MatchStarted match) {
         this.matchId = match.getMatchId();
         this.homeClubId = match.getHomeClubId();
@@ -25,8 +42,12 @@ public class MatchScore {
         assertEquals(homeClubId, other.homeClubId, "homeClubId");
         assertEquals(awayClubId, other.awayClubId, "awayClubId");
 
+        if (isApplied(other)) {
+            return this;
+        }
         homeGoals += other.homeGoals;
         awayGoals += other.awayGoals;
+        appliedEvents.addAll(other.appliedEvents);
 
         return this;
     }
@@ -103,6 +124,11 @@ public class MatchScore {
         this.awayGoals = awayGoals;
     }
 
+    @Override
+    public Set<String> appliedEvents() {
+        return appliedEvents;
+    }
+
     @Override
     public String toString() {
         return homeClubId + " vs " + awayClubId + " " + homeGoals + ":" + awayGoals;
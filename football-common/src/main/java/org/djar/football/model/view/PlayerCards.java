@@ -1,15 +1,22 @@
 package org.djar.football.model.view;
 
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
+import org.djar.football.codegen.GenerateCodec;
+import org.djar.football.model.Deduplicated;
 import org.djar.football.model.event.CardReceived;
 import org.djar.football.model.event.PlayerStartedCareer;
 
-public class PlayerCards {
+@GenerateCodec
+public class PlayerCards implements Deduplicated {
 
     private String playerId;
     private String playerName;
     private int yellowCards;
     private int redCards;
+    // the ids of the records aggregated, in at_least_once mode only
+    private Set<String> appliedEvents = new HashSet<>();
 
     private PlayerCards() {
     }
@@ -19,6 +26,14 @@ public class PlayerCards {
         this.playerName = player.getName();
     }
 
+    PlayerCards(String playerId, String playerName, int yellowCards, int redCards, Set<String> appliedEvents) {
+        this.playerId = playerId;
+        this.playerName = playerName;
+        this.yellowCards = yellowCards;
+        this.redCards = redCards;
+        this.appliedEvents = appliedEvents;
+    }
+
     public PlayerCards card(CardReceived card) {
         if (card != null) {
             if (card.getType() == CardReceived.Type.YELLOW) {
@@ -65,8 +80,12 @@ public class PlayerCards {
 
     public PlayerCards aggregate(PlayerCards other) {
         assertPlayerId(other);
-        this.yellowCards += other.yellowCards;
-        this.redCards += other.redCards;
+
+        if (!isApplied(other)) {
+            this.yellowCards += other.yellowCards;
+            this.redCards += other.redCards;
+            this.appliedEvents.addAll(other.appliedEvents);
+        }
         return this;
     }
 
@@ -76,6 +95,11 @@ public class PlayerCards {
         }
     }
 
+    @Override
+    public Set<String> appliedEvents() {
+        return appliedEvents;
+    }
+
     @Override
     public String toString() {
         return playerName + " " + yellowCards + " " + redCards;
@@ -1,15 +1,22 @@
 package org.djar.football.model.view;
 
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
+import org.djar.football.codegen.GenerateCodec;
+import org.djar.football.model.Deduplicated;
 import org.djar.football.model.event.CardReceived;
 import org.djar.football.model.event.GoalScored;
 import org.djar.football.model.event.PlayerStartedCareer;
 
-public class PlayerGoals {
+@GenerateCodec
+public class PlayerGoals implements Deduplicated {
 
     private String playerId;
     private String playerName;
     private int goals;
+    // the ids of the records aggregated, in at_least_once mode only
+    private Set<String> appliedEvents = new HashSet<>();
 
     private PlayerGoals() {
     }
@@ -23,6 +30,12 @@ public class PlayerGoals {
         this.playerName = playerName;
     }
 
+    PlayerGoals(String playerId, String playerName, int goals, Set<String> appliedEvents) {
+        this(playerId, playerName);
+        this.goals = goals;
+        this.appliedEvents = appliedEvents;
+    }
+
     public PlayerGoals goal(GoalScored goal) {
         if (goal != null) {
             goals = 1;
@@ -62,7 +75,11 @@ public class PlayerGoals {
 
     public PlayerGoals aggregate(PlayerGoals other) {
         assertPlayerId(other);
-        this.goals += other.goals;
+
+        if (!isApplied(other)) {
+            this.goals += other.goals;
+            this.appliedEvents.addAll(other.appliedEvents);
+        }
         return this;
     }
 
@@ -72,6 +89,11 @@ public class PlayerGoals {
         }
     }
 
+    @Override
+    public Set<String> appliedEvents() {
+        return appliedEvents;
+    }
+
     @Override
     public String toString() {
         return playerName + " " + goals;
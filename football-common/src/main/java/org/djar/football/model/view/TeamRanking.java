@@ -1,8 +1,13 @@
 package org.djar.football.model.view;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.HashSet;
+import java.util.Set;
+import org.djar.football.codegen.GenerateCodec;
+import org.djar.football.model.Deduplicated;
 
-public class TeamRanking {
+@GenerateCodec
+public class TeamRanking implements Deduplicated {
 
     private String clubId;
     private int matchesPlayed;
@@ -11,6 +16,8 @@ public class TeamRanking {
     private int lose;
     private int goalsFor;
     private int goalsAgainst;
+    // the ids of the records aggregated, in at_least_once mode only
+    private Set<String> appliedEvents = new HashSet<>();
 
     private TeamRanking() {
     }
@@ -25,7 +32,17 @@ public class TeamRanking {
         this.goalsAgainst = goalsAgainst;
     }
 
+    TeamRanking(String clubId, int matchesPlayed, int won, int drawn, int lose, int goalsFor, int goalsAgainst,
+            Set<String> appliedEvents) {
+        this(clubId, matchesPlayed, won, drawn, lose, goalsFor, goalsAgainst);
+        this.appliedEvents = appliedEvents;
+    }
+
     public TeamRanking aggregate(TeamRanking other) {
+        if (isApplied(other)) {
+            return this;
+        }
+        appliedEvents.addAll(other.appliedEvents);
         matchesPlayed += other.matchesPlayed;
         won += other.won;
         drawn += other.drawn;
@@ -97,6 +114,11 @@ public class TeamRanking {
         return won * 3 + drawn;
     }
 
+    @Override
+    public Set<String> appliedEvents() {
+        return appliedEvents;
+    }
+
     @Override
     public String toString() {
         return matchesPlayed + " " + won + " " + drawn + " " + lose + " " + goalsFor + " " + goalsAgainst + " "
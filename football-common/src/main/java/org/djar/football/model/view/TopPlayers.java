@@ -3,7 +3,9 @@ package org.djar.football.model.view;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import org.djar.football.codegen.GenerateCodec;
 
+@GenerateCodec
 public class TopPlayers {
 
     private List<PlayerGoals> players;
@@ -17,6 +19,11 @@ public class TopPlayers {
         this.players = new ArrayList<>(limit + 1);
     }
 
+    TopPlayers(List<PlayerGoals> players, int limit) {
+        this.players = players;
+        this.limit = limit;
+    }
+
     public TopPlayers aggregate(PlayerGoals playerGoals) {
         upsert(playerGoals);
         players.sort(Comparator.comparingInt(PlayerGoals::getGoals).reversed());
@@ -0,0 +1,172 @@
+package org.djar.football.repo;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Store key made of several components (e.g. season|club|player or season|date|match). The components are encoded
+ * so that the unsigned byte order of the keys, which is the order of both RocksDB and in-memory stores, is the order
+ * of the components. A key is a byte prefix of all the keys that extend it, so the keys starting with the same
+ * components can be read with a single range query.
+ * <p>
+ * Strings are written as UTF-8 with 0x00 escaped as 0x00 0xFF and terminated by 0x00, numbers are written as
+ * big-endian longs with the sign bit flipped.
+ */
+public final class CompositeKey implements Comparable<CompositeKey> {
+
+    private static final byte STRING = 0x01;
+    private static final byte NUMBER = 0x02;
+    private static final byte ESCAPE = (byte)0xFF;
+    private static final byte UPPER_BOUND = (byte)0xFF;
+
+    private static final CompositeKey EMPTY = new CompositeKey(new byte[0]);
+
+    private final byte[] bytes;
+
+    private CompositeKey(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public static CompositeKey of(Object... components) {
+        CompositeKey key = EMPTY;
+
+        for (Object component : components) {
+            if (component instanceof String) {
+                key = key.append((String)component);
+            } else if (component instanceof Long || component instanceof Integer) {
+                key = key.append(((Number)component).longValue());
+            } else {
+                throw new IllegalArgumentException("Unsupported key component: " + component);
+            }
+        }
+        return key;
+    }
+
+    public static CompositeKey fromBytes(byte[] bytes) {
+        return new CompositeKey(bytes);
+    }
+
+    public CompositeKey append(String component) {
+        byte[] utf8 = component.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length + utf8.length + 2);
+        out.write(bytes, 0, bytes.length);
+        out.write(STRING);
+
+        for (byte b : utf8) {
+            out.write(b);
+
+            if (b == 0) {
+                out.write(ESCAPE);
+            }
+        }
+        out.write(0);
+        return new CompositeKey(out.toByteArray());
+    }
+
+    public CompositeKey append(long component) {
+        byte[] result = Arrays.copyOf(bytes, bytes.length + 1 + Long.BYTES);
+        long flipped = component ^ Long.MIN_VALUE;
+        result[bytes.length] = NUMBER;
+
+        for (int i = 0; i < Long.BYTES; i++) {
+            result[bytes.length + 1 + i] = (byte)(flipped >>> (56 - 8 * i));
+        }
+        return new CompositeKey(result);
+    }
+
+    /**
+     * Returns the smallest key greater than this key and all the keys that extend it, used as the inclusive upper
+     * bound of prefix queries. The returned key cannot be decoded into components.
+     */
+    public CompositeKey prefixEnd() {
+        byte[] result = Arrays.copyOf(bytes, bytes.length + 1);
+        result[bytes.length] = UPPER_BOUND;
+        return new CompositeKey(result);
+    }
+
+    public List<Object> components() {
+        List<Object> result = new ArrayList<>();
+        int pos = 0;
+
+        while (pos < bytes.length) {
+            byte tag = bytes[pos++];
+
+            if (tag == STRING) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+                while (true) {
+                    if (pos >= bytes.length) {
+                        throw new IllegalStateException("Unterminated key component at " + pos);
+                    }
+                    byte b = bytes[pos++];
+
+                    if (b == 0) {
+                        if (pos < bytes.length && bytes[pos] == ESCAPE) {
+                            out.write(0);
+                            pos++;
+                            continue;
+                        }
+                        break;
+                    }
+                    out.write(b);
+                }
+                result.add(new String(out.toByteArray(), StandardCharsets.UTF_8));
+            } else if (tag == NUMBER) {
+                if (pos + Long.BYTES > bytes.length) {
+                    throw new IllegalStateException("Truncated key component at " + pos);
+                }
+                long flipped = 0;
+
+                for (int i = 0; i < Long.BYTES; i++) {
+                    flipped = (flipped << 8) | (bytes[pos++] & 0xFF);
+                }
+                result.add(flipped ^ Long.MIN_VALUE);
+            } else {
+                throw new IllegalStateException("Invalid key component tag " + tag + " at " + (pos - 1));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    @Override
+    public int compareTo(CompositeKey other) {
+        int length = Math.min(bytes.length, other.bytes.length);
+
+        for (int i = 0; i < length; i++) {
+            int diff = (bytes[i] & 0xFF) - (other.bytes[i] & 0xFF);
+
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return bytes.length - other.bytes.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof CompositeKey && Arrays.equals(bytes, ((CompositeKey)o).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return components().toString();
+        } catch (IllegalStateException e) {
+            // prefix bound
+            return Arrays.toString(bytes);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.djar.football.repo;
+
+/**
+ * Maps identifiers (club ids, player ids) to dense integers, so that they can be stored in a compact form.
+ */
+public interface IdDictionary {
+
+    /**
+     * Requests a number for the value if none is assigned yet, without waiting for it: assigning a number may take
+     * a round trip to the other instances, {@link #find(String)} returns it once assigned.
+     */
+    void request(String value);
+
+    /**
+     * Returns the number already assigned to the value, null if none, without assigning it.
+     */
+    Integer find(String value);
+
+    /**
+     * Returns the value the number has been assigned to. The numbers are written only once found, so the numbers
+     * read back are known.
+     *
+     * @throws IllegalArgumentException if the number has not been assigned
+     */
+    String value(int id);
+}
@@ -0,0 +1,283 @@
+package org.djar.football.repo;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.IntegerDeserializer;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.processor.AbstractProcessor;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.djar.football.stream.KafkaStreamsStarter;
+import org.djar.football.stream.TopicProvisioner;
+import org.djar.football.util.Topics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dictionary shared by all the services. The numbers are assigned by a single writer (the assigner topology
+ * consuming a single-partition request topic) and published to a compacted topic, which is read by every instance
+ * into memory. The numbers are requested in the background, the callers never wait for the assigner.
+ */
+public class KafkaIdDictionary implements IdDictionary, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaIdDictionary.class);
+
+    public static final String REQUESTS_TOPIC = Topics.TOPIC_NAME_PREFIX + "dict.requests";
+    public static final String IDS_TOPIC = Topics.TOPIC_NAME_PREFIX + "dict.ids";
+
+    private static final String ASSIGNER_APP_ID = "IdDictionaryAssigner";
+    private static final String ASSIGNER_STORE = "id_dictionary_store";
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> values = new ConcurrentHashMap<>();
+    // requested and not read yet
+    private final Set<String> requested = ConcurrentHashMap.newKeySet();
+
+    private final String kafkaBootstrapAddress;
+    private final long timeout;
+    private final Producer<String, String> producer;
+    private final Consumer<String, Integer> consumer;
+    private final CompletableFuture<KafkaIdDictionary> loaded = new CompletableFuture<>();
+    // sends the requests, the producer may block waiting for the metadata
+    private final ExecutorService requester = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "id-dictionary-requester");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // null if the assigner runs in another process
+    private KafkaStreamsStarter assigner;
+    private volatile boolean closed;
+
+    public KafkaIdDictionary(String kafkaBootstrapAddress, long timeout) {
+        this(kafkaBootstrapAddress, timeout, new KafkaProducer<>(producerProps(kafkaBootstrapAddress)),
+            new KafkaConsumer<>(consumerProps(kafkaBootstrapAddress)));
+    }
+
+    KafkaIdDictionary(String kafkaBootstrapAddress, long timeout, Producer<String, String> producer,
+            Consumer<String, Integer> consumer) {
+        this.kafkaBootstrapAddress = kafkaBootstrapAddress;
+        this.timeout = timeout;
+        this.producer = producer;
+        this.consumer = consumer;
+    }
+
+    private static Properties producerProps(String kafkaBootstrapAddress) {
+        Properties producerProps = new Properties();
+        producerProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapAddress);
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        return producerProps;
+    }
+
+    private static Properties consumerProps(String kafkaBootstrapAddress) {
+        Properties consumerProps = new Properties();
+        consumerProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapAddress);
+        consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, IntegerDeserializer.class);
+        consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return consumerProps;
+    }
+
+    /**
+     * Starts reading the dictionary in the background, after the assigner started by {@link #startAssigner()} has
+     * created the topics. See {@link #whenLoaded()}.
+     */
+    public KafkaIdDictionary start() {
+        CompletableFuture<?> topics = assigner != null ? assigner.whenStarted()
+            : CompletableFuture.completedFuture(null);
+        topics.whenComplete((result, exception) -> {
+            if (exception != null) {
+                loaded.completeExceptionally(exception);
+                return;
+            }
+            Thread reader = new Thread(this::read, "id-dictionary-reader");
+            reader.setDaemon(true);
+            reader.start();
+        });
+        return this;
+    }
+
+    /**
+     * Completes once all the numbers assigned so far are loaded, exceptionally if the dictionary or its assigner
+     * cannot be started within the timeout. The keys written by {@link org.djar.football.stream.DictionaryKeySerde}
+     * can be read only then.
+     */
+    public CompletableFuture<KafkaIdDictionary> whenLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns the starter of the assigner run by this process, null if none.
+     */
+    public KafkaStreamsStarter getAssigner() {
+        return assigner;
+    }
+
+    /**
+     * Starts the assigner in this process in the background. Only one service should run it, running it in more
+     * instances of the same service is safe, because the assigner is a single Kafka Streams task.
+     */
+    public KafkaIdDictionary startAssigner() {
+        KafkaStreamsStarter starter = new KafkaStreamsStarter(kafkaBootstrapAddress, assignerTopology(),
+                ASSIGNER_APP_ID);
+        starter.setKafkaTimeout(timeout);
+        // the numbers are assigned in order by a single task
+        TopicProvisioner topics = new TopicProvisioner(1, (short)1);
+        topics.setPartitions(REQUESTS_TOPIC, 1);
+        topics.setPartitions(IDS_TOPIC, 1);
+        topics.setCompacted(IDS_TOPIC);
+        starter.setTopicProvisioner(topics);
+        starter.startAsync();
+        assigner = starter;
+        return this;
+    }
+
+    @Override
+    public void request(String value) {
+        if (closed || ids.containsKey(value) || !requested.add(value)) {
+            return;
+        }
+        requester.execute(() -> producer.send(new ProducerRecord<>(REQUESTS_TOPIC, 0, value, value),
+            (metadata, exception) -> {
+                if (exception != null) {
+                    logger.warn("Unable to request a number for {}", value, exception);
+                    // requested again by the next call
+                    requested.remove(value);
+                }
+            }));
+    }
+
+    @Override
+    public Integer find(String value) {
+        return ids.get(value);
+    }
+
+    @Override
+    public String value(int id) {
+        String value = values.get(id);
+
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown id " + id);
+        }
+        return value;
+    }
+
+    private void read() {
+        TopicPartition partition = new TopicPartition(IDS_TOPIC, 0);
+        List<TopicPartition> partitions = Collections.singletonList(partition);
+
+        try {
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            long endOffset = consumer.endOffsets(partitions).get(partition);
+            long deadline = System.currentTimeMillis() + timeout;
+
+            while (!closed) {
+                ConsumerRecords<String, Integer> records = consumer.poll(1000);
+
+                for (ConsumerRecord<String, Integer> record : records) {
+                    // the value first, a number found is always known
+                    values.put(record.value(), record.key());
+                    ids.put(record.key(), record.value());
+                    requested.remove(record.key());
+                }
+                if (!loaded.isDone()) {
+                    if (consumer.position(partition) >= endOffset) {
+                        logger.debug("Id dictionary loaded, {} entries", ids.size());
+                        loaded.complete(this);
+                    } else if (System.currentTimeMillis() > deadline) {
+                        loaded.completeExceptionally(new IllegalStateException("Timeout loading the id dictionary from "
+                            + IDS_TOPIC));
+                    }
+                }
+            }
+        } catch (WakeupException e) {
+            // closed
+        } catch (Exception e) {
+            logger.error("Id dictionary reader failed", e);
+            loaded.completeExceptionally(e);
+        } finally {
+            consumer.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        consumer.wakeup();
+        requester.shutdown();
+        producer.close();
+
+        if (assigner != null && assigner.getKafkaStreams() != null) {
+            assigner.getKafkaStreams().close();
+        }
+    }
+
+    static Topology assignerTopology() {
+        Topology topology = new Topology();
+        topology.addSource("DictionaryRequestSource", Serdes.String().deserializer(), Serdes.String().deserializer(),
+                REQUESTS_TOPIC)
+            .addProcessor("DictionaryAssigner", Assigner::new, "DictionaryRequestSource")
+            .addStateStore(Stores.keyValueStoreBuilder(Stores.persistentKeyValueStore(ASSIGNER_STORE),
+                Serdes.String(), Serdes.Integer()), "DictionaryAssigner")
+            .addSink("DictionaryIdSink", IDS_TOPIC, Serdes.String().serializer(), Serdes.Integer().serializer(),
+                "DictionaryAssigner");
+        return topology;
+    }
+
+    private static class Assigner extends AbstractProcessor<String, String> {
+
+        private KeyValueStore<String, Integer> store;
+        private int nextId;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void init(ProcessorContext context) {
+            super.init(context);
+            store = (KeyValueStore<String, Integer>)context.getStateStore(ASSIGNER_STORE);
+
+            try (KeyValueIterator<String, Integer> iterator = store.all()) {
+                while (iterator.hasNext()) {
+                    nextId = Math.max(nextId, iterator.next().value + 1);
+                }
+            }
+        }
+
+        @Override
+        public void process(String key, String value) {
+            Integer id = store.get(value);
+
+            if (id == null) {
+                id = nextId++;
+                store.put(value, id);
+            }
+            // duplicated requests are answered again, the ids topic is compacted anyway
+            context().forward(value, id);
+        }
+    }
+}
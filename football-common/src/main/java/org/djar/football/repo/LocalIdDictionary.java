@@ -0,0 +1,43 @@
+package org.djar.football.repo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary kept in memory of a single process, for tests and single-instance deployments.
+ */
+public class LocalIdDictionary implements IdDictionary {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Returns the number assigned to the value, a new one is assigned if the value is not known yet.
+     */
+    public synchronized int id(String value) {
+        return ids.computeIfAbsent(value, key -> {
+            values.add(key);
+            return values.size() - 1;
+        });
+    }
+
+    @Override
+    public void request(String value) {
+        id(value);
+    }
+
+    @Override
+    public synchronized Integer find(String value) {
+        return ids.get(value);
+    }
+
+    @Override
+    public synchronized String value(int id) {
+        if (id < 0 || id >= values.size()) {
+            throw new IllegalArgumentException("Unknown id " + id);
+        }
+        return values.get(id);
+    }
+}
@@ -1,41 +1,185 @@
 package org.djar.football.repo;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
 import org.apache.kafka.streams.state.KeyValueIterator;
 import org.apache.kafka.streams.state.QueryableStoreTypes;
 import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.djar.football.stream.KafkaStreamsStarter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 
+/**
+ * Queries a local key-value store. The store is not available while Kafka Streams is rebalancing or restoring it,
+ * e.g. after a restart. With {@link #setMaxStaleness(long)} the results of the previous queries are served meanwhile,
+ * if not older than the given time. At most {@link #setMaxResults(int)} results are kept, the oldest are evicted.
+ */
 public class StateStoreRepository<T> {
 
-    private final KafkaStreams kafkaStreams;
+    private static final Logger logger = LoggerFactory.getLogger(StateStoreRepository.class);
+
+    public static final int DEFAULT_MAX_RESULTS = 10_000;
+
     private final String storeName;
+    private final Supplier<ReadOnlyKeyValueStore<Object, T>> store;
+    // the oldest first
+    private final Map<Object, Result<?>> results = new LinkedHashMap<>();
+
+    private volatile long maxStaleness;
+    private volatile int maxResults = DEFAULT_MAX_RESULTS;
 
     public StateStoreRepository(KafkaStreams kafkaStreams, String storeName) {
-        this.kafkaStreams = kafkaStreams;
+        this(storeName, () -> kafkaStreams.store(storeName, QueryableStoreTypes.keyValueStore()));
+    }
+
+    /**
+     * Queries the store of Kafka Streams started asynchronously, the store is not available until started.
+     */
+    public StateStoreRepository(KafkaStreamsStarter starter, String storeName) {
+        this(storeName, () -> {
+            KafkaStreams kafkaStreams = starter.getKafkaStreams();
+
+            if (kafkaStreams == null) {
+                throw new InvalidStateStoreException("Kafka Streams not started yet");
+            }
+            return kafkaStreams.store(storeName, QueryableStoreTypes.keyValueStore());
+        });
+    }
+
+    StateStoreRepository(String storeName, Supplier<ReadOnlyKeyValueStore<Object, T>> store) {
         this.storeName = storeName;
+        this.store = store;
+    }
+
+    /**
+     * Sets how old (in ms) the results served while the store is not available can be, 0 (the default) to fail
+     * immediately. The results of the recent queries are kept if set.
+     */
+    public void setMaxStaleness(long maxStaleness) {
+        this.maxStaleness = maxStaleness;
+
+        if (maxStaleness <= 0) {
+            synchronized (results) {
+                results.clear();
+            }
+        }
+    }
+
+    /**
+     * Sets how many results of the previous queries are kept, {@link #DEFAULT_MAX_RESULTS} by default.
+     */
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
     }
 
     public Optional<T> find(String id) {
         Objects.requireNonNull(id, "Null id");
-        return Optional.ofNullable(store().get(id));
+        return Optional.ofNullable(query(id, store -> store.get(id)));
     }
 
     public Flux<T> findAll() {
-        return Flux.create(sink -> {
-            var iterator = store().all();
+        return values(List.of(), ReadOnlyKeyValueStore::all);
+    }
+
+    /**
+     * Finds the values with keys starting with the given components, the store must be keyed by
+     * {@link CompositeKey}.
+     */
+    public Flux<T> findByPrefix(CompositeKey prefix) {
+        Objects.requireNonNull(prefix, "Null prefix");
+        return findRange(prefix, prefix.prefixEnd());
+    }
+
+    /**
+     * Finds the values with keys between the given ones (inclusive) in the key order, the store must be keyed by
+     * {@link CompositeKey}.
+     */
+    public Flux<T> findRange(CompositeKey from, CompositeKey to) {
+        Objects.requireNonNull(from, "Null from");
+        Objects.requireNonNull(to, "Null to");
+        return values(List.of(from, to), store -> store.range(from, to));
+    }
+
+    private Flux<T> values(Object queryKey,
+            Function<ReadOnlyKeyValueStore<Object, T>, KeyValueIterator<Object, T>> query) {
+        return Flux.defer(() -> Flux.fromIterable(query(queryKey, store -> {
+            List<T> values = new ArrayList<>();
+
+            try (KeyValueIterator<Object, T> iterator = query.apply(store)) {
+                iterator.forEachRemaining(entry -> values.add(entry.value));
+            }
+            return values;
+        })));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R query(Object queryKey, Function<ReadOnlyKeyValueStore<Object, T>, R> query) {
+        try {
+            R result = query.apply(store.get());
+
+            if (maxStaleness > 0) {
+                keep(queryKey, result, System.currentTimeMillis());
+            }
+            return result;
+        } catch (InvalidStateStoreException e) {
+            Result<R> previous;
+
+            synchronized (results) {
+                previous = (Result<R>)results.get(queryKey);
+            }
+
+            if (previous == null || System.currentTimeMillis() - previous.time > maxStaleness) {
+                throw e;
+            }
+            logger.debug("Store {} not available, serving a result from {} ms ago: {}", storeName,
+                System.currentTimeMillis() - previous.time, e.getMessage());
+            return previous.value;
+        }
+    }
+
+    // the entries are ordered by time, so the stale ones and the ones above the limit are at the beginning
+    private void keep(Object queryKey, Object result, long now) {
+        synchronized (results) {
+            results.remove(queryKey);
+            results.put(queryKey, new Result<>(result, now));
+
+            Iterator<Result<?>> iterator = results.values().iterator();
 
             while (iterator.hasNext()) {
-                sink.next(iterator.next().value);
+                Result<?> oldest = iterator.next();
+
+                if (results.size() <= maxResults && now - oldest.time <= maxStaleness) {
+                    break;
+                }
+                iterator.remove();
             }
-            iterator.close();
-            sink.complete();
-        });
+        }
+    }
+
+    int resultCount() {
+        synchronized (results) {
+            return results.size();
+        }
     }
 
-    private ReadOnlyKeyValueStore<String, T> store() {
-        return kafkaStreams.store(storeName, QueryableStoreTypes.<String, T>keyValueStore());
+    private static class Result<R> {
+
+        private final R value;
+        private final long time;
+
+        private Result(R value, long time) {
+            this.value = value;
+            this.time = time;
+        }
     }
 }
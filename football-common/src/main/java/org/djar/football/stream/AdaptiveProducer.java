@@ -0,0 +1,195 @@
+package org.djar.football.stream;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Switches between a {@link ProducerProfile#LOW_LATENCY} and a {@link ProducerProfile#HIGH_THROUGHPUT} producer,
+ * because the batching of a Kafka producer cannot be changed once it is created. Batching is widened when the
+ * records wait in the producer's queue (record-queue-time-avg) or many records are not acknowledged yet, and
+ * narrowed again when the traffic is light (record-send-rate).
+ * <p>
+ * With linger.ms=0 the records leave the queue as soon as a request can be sent, so the queue time of a single
+ * sender stays near 0 until the broker is saturated; the number of unacknowledged records grows with the load.
+ * <p>
+ * The profile is only switched between transactions, and the previous producer is flushed first, so the records of
+ * an aggregate stay in order. Like the producers of EventPublisher, it should be used by a single thread.
+ */
+public class AdaptiveProducer<K, V> implements Producer<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveProducer.class);
+
+    public static final String ADAPTIVE = "ADAPTIVE";
+
+    static final double QUEUE_TIME_HIGH_MS = 5;
+    static final int PENDING_HIGH = 100;
+    static final double SEND_RATE_LOW = 50;
+    static final long CHECK_INTERVAL_MS = 1000;
+
+    private final Map<ProducerProfile, Producer<K, V>> producers = new EnumMap<>(ProducerProfile.class);
+
+    // sent and not acknowledged yet, decremented by the producers' I/O threads
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile ProducerProfile profile = ProducerProfile.LOW_LATENCY;
+    private boolean inTransaction;
+    private long lastCheck = System.currentTimeMillis();
+
+    /**
+     * @param producerFactory creates a producer configured with the given profile (and a distinct transactional.id
+     *                        for each profile, if the producers are transactional)
+     */
+    public AdaptiveProducer(Function<ProducerProfile, Producer<K, V>> producerFactory) {
+        for (ProducerProfile profile : ProducerProfile.values()) {
+            producers.put(profile, producerFactory.apply(profile));
+        }
+    }
+
+    public ProducerProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public void initTransactions() {
+        producers.values().forEach(Producer::initTransactions);
+    }
+
+    @Override
+    public void beginTransaction() {
+        maybeSwitch(System.currentTimeMillis());
+        current().beginTransaction();
+        inTransaction = true;
+    }
+
+    @Override
+    public void sendOffsetsToTransaction(Map<TopicPartition, OffsetAndMetadata> offsets, String consumerGroupId) {
+        current().sendOffsetsToTransaction(offsets, consumerGroupId);
+    }
+
+    @Override
+    public void commitTransaction() {
+        inTransaction = false;
+        current().commitTransaction();
+    }
+
+    @Override
+    public void abortTransaction() {
+        inTransaction = false;
+        current().abortTransaction();
+    }
+
+    @Override
+    public Future<RecordMetadata> send(ProducerRecord<K, V> record) {
+        return send(record, null);
+    }
+
+    @Override
+    public Future<RecordMetadata> send(ProducerRecord<K, V> record, Callback callback) {
+        maybeSwitch(System.currentTimeMillis());
+        pending.incrementAndGet();
+
+        try {
+            return current().send(record, (metadata, exception) -> {
+                pending.decrementAndGet();
+
+                if (callback != null) {
+                    callback.onCompletion(metadata, exception);
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.decrementAndGet();
+            throw e;
+        }
+    }
+
+    void maybeSwitch(long now) {
+        if (inTransaction || now - lastCheck < CHECK_INTERVAL_MS) {
+            return;
+        }
+        lastCheck = now;
+        Map<MetricName, ? extends Metric> metrics = current().metrics();
+        double queueTime = metric(metrics, "record-queue-time-avg");
+        double sendRate = metric(metrics, "record-send-rate");
+        int pendingRecords = pending.get();
+        ProducerProfile next = choose(profile, queueTime, sendRate, pendingRecords);
+
+        if (next != profile) {
+            logger.info("Switching the event producer to {}, queue time {} ms, send rate {}/s, {} pending", next,
+                queueTime, sendRate, pendingRecords);
+            switchTo(next);
+        }
+    }
+
+    void switchTo(ProducerProfile next) {
+        // the records already sent must be acknowledged before the next producer sends the following ones
+        current().flush();
+        profile = next;
+    }
+
+    static ProducerProfile choose(ProducerProfile current, double queueTimeMs, double sendRate, int pending) {
+        if (current == ProducerProfile.LOW_LATENCY && (queueTimeMs > QUEUE_TIME_HIGH_MS || pending > PENDING_HIGH)) {
+            return ProducerProfile.HIGH_THROUGHPUT;
+        }
+        // the queue time of the high throughput profile includes linger.ms, so only the rate tells the load
+        if (current == ProducerProfile.HIGH_THROUGHPUT && sendRate < SEND_RATE_LOW && pending <= PENDING_HIGH) {
+            return ProducerProfile.LOW_LATENCY;
+        }
+        return current;
+    }
+
+    // NaN if there is no such metric or no samples yet, which never causes a switch
+    private static double metric(Map<MetricName, ? extends Metric> metrics, String name) {
+        for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+            if (entry.getKey().name().equals(name) && entry.getKey().group().equals("producer-metrics")) {
+                Object value = entry.getValue().metricValue();
+                return value instanceof Number ? ((Number)value).doubleValue() : Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private Producer<K, V> current() {
+        return producers.get(profile);
+    }
+
+    @Override
+    public void flush() {
+        current().flush();
+    }
+
+    @Override
+    public List<PartitionInfo> partitionsFor(String topic) {
+        return current().partitionsFor(topic);
+    }
+
+    @Override
+    public Map<MetricName, ? extends Metric> metrics() {
+        return current().metrics();
+    }
+
+    @Override
+    public void close() {
+        producers.values().forEach(Producer::close);
+    }
+
+    @Override
+    public void close(long timeout, TimeUnit unit) {
+        producers.values().forEach(producer -> producer.close(timeout, unit));
+    }
+}
@@ -0,0 +1,42 @@
+package org.djar.football.stream;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+/**
+ * Partitions the events by the aggregate id (the record key), so that all the events of a match end up
+ * in the same partition number of every fb-event.* topic, provided the topics have the same number of partitions
+ * (see {@link KafkaStreamsStarter}). The hash is the same as of the Kafka Streams default partitioner, so the
+ * records written by the topologies with String keys are co-located with the published events.
+ */
+public class AggregatePartitioner implements Partitioner {
+
+    public static int partition(String aggId, int numPartitions) {
+        return partition(aggId.getBytes(StandardCharsets.UTF_8), numPartitions);
+    }
+
+    private static int partition(byte[] aggId, int numPartitions) {
+        return Utils.toPositive(Utils.murmur2(aggId)) % numPartitions;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes,
+            Cluster cluster) {
+        if (keyBytes == null) {
+            // the default partitioner would spread them round-robin
+            throw new IllegalArgumentException("Event without aggregate id cannot be published to " + topic);
+        }
+        return partition(keyBytes, cluster.partitionCountForTopic(topic));
+    }
+
+    @Override
+    public void close() {
+    }
+}
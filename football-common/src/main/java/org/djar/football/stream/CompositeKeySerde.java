@@ -0,0 +1,42 @@
+package org.djar.football.stream;
+
+import java.util.Map;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+import org.djar.football.repo.CompositeKey;
+
+/**
+ * Writes {@link CompositeKey} as its order-preserving encoding, so that range queries of the stores follow the key
+ * components. Like {@link DictionaryKeySerde} it is meant for stores, not for topics co-partitioned with the events.
+ */
+public class CompositeKeySerde implements Serde<CompositeKey>, Serializer<CompositeKey>, Deserializer<CompositeKey> {
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+    }
+
+    @Override
+    public byte[] serialize(String topic, CompositeKey data) {
+        return data != null ? data.bytes() : null;
+    }
+
+    @Override
+    public CompositeKey deserialize(String topic, byte[] data) {
+        return data != null ? CompositeKey.fromBytes(data) : null;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public Serializer<CompositeKey> serializer() {
+        return this;
+    }
+
+    @Override
+    public Deserializer<CompositeKey> deserializer() {
+        return this;
+    }
+}
@@ -0,0 +1,44 @@
+package org.djar.football.stream;
+
+import java.util.Arrays;
+
+/**
+ * Change event produced by Debezium, limited to the operation type and the selected fields of the row state
+ * after the change, see {@link DebeziumEnvelopeDeserializer}.
+ */
+public class DebeziumEnvelope {
+
+    private final String op;
+    private final String[] fieldNames;
+    private final String[] after;
+
+    DebeziumEnvelope(String op, String[] fieldNames, String[] after) {
+        this.op = op;
+        this.fieldNames = fieldNames;
+        this.after = after;
+    }
+
+    /**
+     * @return c - create, u - update, d - delete, r - read (snapshot)
+     */
+    public String getOp() {
+        return op;
+    }
+
+    /**
+     * @return the field value as text, null if the field is null or missing or it hasn't been selected
+     */
+    public String after(String fieldName) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (fieldNames[i].equals(fieldName)) {
+                return after[i];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return op + " " + Arrays.toString(after);
+    }
+}
@@ -0,0 +1,94 @@
+package org.djar.football.stream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.Map;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Reads Debezium change events token by token. The schema block and all the fields that haven't been selected
+ * are skipped without building any tree. Both the envelope with schema and the bare payload are supported.
+ */
+public class DebeziumEnvelopeDeserializer implements Deserializer<DebeziumEnvelope> {
+
+    private final JsonFactory factory = SerdeRegistry.mapper().getFactory();
+    private final String[] fieldNames;
+
+    public DebeziumEnvelopeDeserializer(String... afterFields) {
+        this.fieldNames = afterFields;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+    }
+
+    @Override
+    public DebeziumEnvelope deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try (JsonParser parser = factory.createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new SerializationException("Not a JSON object");
+            }
+            return parsePayload(parser, true);
+        } catch (IOException e) {
+            throw new SerializationException("Error deserializing from " + WireFormat.preview(data), e);
+        }
+    }
+
+    private DebeziumEnvelope parsePayload(JsonParser parser, boolean root) throws IOException {
+        String op = null;
+        String[] after = null;
+        DebeziumEnvelope payload = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if (root && "payload".equals(name) && token == JsonToken.START_OBJECT) {
+                payload = parsePayload(parser, false);
+            } else if ("op".equals(name)) {
+                op = parser.getValueAsString();
+            } else if ("after".equals(name) && token == JsonToken.START_OBJECT) {
+                after = parseAfter(parser);
+            } else {
+                // schema, before, source etc.
+                parser.skipChildren();
+            }
+        }
+        return payload != null ? payload : new DebeziumEnvelope(op, fieldNames,
+                after != null ? after : new String[fieldNames.length]);
+    }
+
+    private String[] parseAfter(JsonParser parser) throws IOException {
+        String[] values = new String[fieldNames.length];
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            int index = indexOf(parser.getCurrentName());
+            JsonToken token = parser.nextToken();
+
+            if (index >= 0 && token != JsonToken.VALUE_NULL) {
+                values[index] = parser.getValueAsString();
+            }
+            parser.skipChildren();
+        }
+        return values;
+    }
+
+    private int indexOf(String fieldName) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (fieldNames[i].equals(fieldName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() {
+    }
+}
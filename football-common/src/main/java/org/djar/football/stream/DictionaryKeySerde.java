@@ -0,0 +1,69 @@
+package org.djar.football.stream;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+import org.djar.football.repo.IdDictionary;
+
+/**
+ * Writes string keys as 4-byte numbers assigned by {@link IdDictionary}. The key bytes are partitioned differently
+ * than strings, so it should be used for stores and grouping topics only, not for topics that have to be
+ * co-partitioned with the event topics.
+ * <p>
+ * The numbers are only looked up, they have to be assigned (see {@link IdAssignment}) before the keys are serialized,
+ * so neither serializing nor deserializing waits for the dictionary.
+ */
+public class DictionaryKeySerde implements Serde<String>, Serializer<String>, Deserializer<String> {
+
+    private final IdDictionary dictionary;
+
+    public DictionaryKeySerde(IdDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+    }
+
+    @Override
+    public byte[] serialize(String topic, String data) {
+        if (data == null) {
+            return null;
+        }
+        Integer assigned = dictionary.find(data);
+
+        if (assigned == null) {
+            throw new SerializationException("No number assigned to " + data);
+        }
+        int id = assigned;
+        return new byte[] {(byte)(id >>> 24), (byte)(id >>> 16), (byte)(id >>> 8), (byte)id};
+    }
+
+    @Override
+    public String deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length != Integer.BYTES) {
+            throw new SerializationException("Invalid dictionary key length " + data.length);
+        }
+        return dictionary.value(ByteBuffer.wrap(data).getInt());
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public Serializer<String> serializer() {
+        return this;
+    }
+
+    @Override
+    public Deserializer<String> deserializer() {
+        return this;
+    }
+}
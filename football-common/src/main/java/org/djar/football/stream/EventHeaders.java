@@ -0,0 +1,68 @@
+package org.djar.football.stream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.djar.football.model.event.EventMetadata;
+
+/**
+ * Carries {@link EventMetadata} in Kafka record headers, so it can be read without decoding the payload.
+ */
+public class EventHeaders {
+
+    public static final String EVENT_ID = "fb.eventId";
+    public static final String PROCESS_ID = "fb.processId";
+    public static final String TIMESTAMP = "fb.timestamp";
+    public static final String VERSION = "fb.version";
+
+    private EventHeaders() {
+    }
+
+    public static void write(EventMetadata metadata, Headers headers) {
+        headers.add(EVENT_ID, toBytes(metadata.getEventId()));
+        headers.add(PROCESS_ID, toBytes(metadata.getProcessId()));
+        headers.add(TIMESTAMP, ByteBuffer.allocate(Long.BYTES).putLong(metadata.getTimestamp()).array());
+        headers.add(VERSION, ByteBuffer.allocate(Integer.BYTES).putInt(metadata.getVersion()).array());
+    }
+
+    public static boolean contains(Headers headers) {
+        return headers != null && headers.lastHeader(EVENT_ID) != null;
+    }
+
+    /**
+     * Copies the metadata from the headers into the given object, if the headers contain any.
+     */
+    public static boolean read(Headers headers, EventMetadata target) {
+        if (!contains(headers)) {
+            return false;
+        }
+        target.setEventId(eventId(headers));
+        target.setProcessId(toString(headers.lastHeader(PROCESS_ID)));
+        target.setTimestamp(timestamp(headers));
+        target.setVersion(version(headers));
+        return true;
+    }
+
+    public static String eventId(Headers headers) {
+        return toString(headers.lastHeader(EVENT_ID));
+    }
+
+    public static long timestamp(Headers headers) {
+        Header header = headers.lastHeader(TIMESTAMP);
+        return header == null ? 0 : ByteBuffer.wrap(header.value()).getLong();
+    }
+
+    public static int version(Headers headers) {
+        Header header = headers.lastHeader(VERSION);
+        return header == null ? 0 : ByteBuffer.wrap(header.value()).getInt();
+    }
+
+    private static byte[] toBytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String toString(Header header) {
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
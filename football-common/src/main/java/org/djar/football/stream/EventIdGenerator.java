@@ -0,0 +1,109 @@
+package org.djar.football.stream;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates event ids ordered by the creation time: 44 bits of milliseconds and 20 bits of a sequence within
+ * the millisecond, followed by 32 bits of the process (a hash of the process id and a random instance number, so
+ * that the instances of a service don't collide). The ids are written as 24 hex digits, the string order is the
+ * time order, or as 12 bytes.
+ * <p>
+ * The time and the sequence are kept in a single atomic number, so the generator is lock-free. If the sequence
+ * overflows or the clock goes back, the ids keep growing ahead of the clock until it catches up.
+ */
+public class EventIdGenerator {
+
+    public static final int BYTES = 12;
+
+    private static final int SEQUENCE_BITS = 20;
+    private static final int LENGTH = BYTES * 2;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final AtomicLong last = new AtomicLong();
+    private final int process;
+
+    public EventIdGenerator(String processId) {
+        this(processId, new SecureRandom().nextInt());
+    }
+
+    EventIdGenerator(String processId, int instance) {
+        this.process = (processId.hashCode() << 16) | (instance & 0xFFFF);
+    }
+
+    public String next() {
+        long time = nextTime();
+        char[] id = new char[LENGTH];
+        writeHex(id, 0, time, 16);
+        writeHex(id, 16, process, 8);
+        return new String(id);
+    }
+
+    long nextTime() {
+        while (true) {
+            long previous = last.get();
+            long next = Math.max(System.currentTimeMillis() << SEQUENCE_BITS, previous + 1);
+
+            if (last.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Returns the creation time of the event in milliseconds.
+     */
+    public static long timestamp(String id) {
+        checkLength(id);
+        return parseHex(id, 0, 16) >>> SEQUENCE_BITS;
+    }
+
+    public static byte[] toBytes(String id) {
+        checkLength(id);
+        byte[] bytes = new byte[BYTES];
+
+        for (int i = 0; i < BYTES; i++) {
+            bytes[i] = (byte)parseHex(id, i * 2, 2);
+        }
+        return bytes;
+    }
+
+    public static String fromBytes(byte[] bytes) {
+        if (bytes.length != BYTES) {
+            throw new IllegalArgumentException("Invalid event id length: " + bytes.length);
+        }
+        char[] id = new char[LENGTH];
+
+        for (int i = 0; i < BYTES; i++) {
+            writeHex(id, i * 2, bytes[i], 2);
+        }
+        return new String(id);
+    }
+
+    private static void checkLength(String id) {
+        if (id.length() != LENGTH) {
+            throw new IllegalArgumentException("Invalid event id: " + id);
+        }
+    }
+
+    private static void writeHex(char[] target, int offset, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            target[offset + i] = HEX[(int)value & 0xF];
+            value >>>= 4;
+        }
+    }
+
+    private static long parseHex(String id, int offset, int digits) {
+        long value = 0;
+
+        for (int i = offset; i < offset + digits; i++) {
+            int digit = Character.digit(id.charAt(i), 16);
+
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid event id: " + id);
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
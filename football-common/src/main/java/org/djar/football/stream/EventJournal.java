@@ -0,0 +1,357 @@
+package org.djar.football.stream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.djar.football.model.event.Event;
+import org.djar.football.util.Topics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local append-only journal of the events accepted while they are not published to Kafka yet. The entries are
+ * written to memory-mapped segment files and forced to the disk before {@link #append(List)} returns, then read
+ * in order by the drainer, which {@link #commit(Entry) commits} the entries published to Kafka. The entries not
+ * committed before a restart are read again, with the same event ids.
+ * <p>
+ * An entry is the length, the CRC32 and the events of a single publish call, so that a transaction can be
+ * published again as a whole. A torn entry at the end of the last segment is discarded on opening.
+ */
+public class EventJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventJournal.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int HEADER = 2 * Integer.BYTES;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT = "journal.checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final NavigableMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private final FileChannel checkpoint;
+
+    private long writeSegment;
+    private int writePosition;
+    private long drainedSegment;
+    private int drainedPosition;
+    // events appended since opening (including the undrained ones found) and events committed since opening
+    private long appendedEvents;
+    private long drainedEvents;
+
+    public EventJournal(Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    EventJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        try {
+            Files.createDirectories(directory);
+            checkpoint = FileChannel.open(directory.resolve(CHECKPOINT), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            readCheckpoint();
+            openSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the event journal in " + directory, e);
+        }
+    }
+
+    private void readCheckpoint() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+
+        if (checkpoint.read(buffer, 0) == buffer.capacity()) {
+            drainedSegment = buffer.getLong(0);
+            drainedPosition = buffer.getInt(Long.BYTES);
+        }
+    }
+
+    private void openSegments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                .forEach(name -> numbers.add(Long.parseLong(
+                    name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        for (long number : numbers) {
+            if (number < drainedSegment) {
+                Files.deleteIfExists(segmentFile(number));
+            } else {
+                segments.put(number, map(number));
+            }
+        }
+        if (!segments.containsKey(drainedSegment)) {
+            segments.put(drainedSegment, map(drainedSegment));
+        }
+        writeSegment = segments.lastKey();
+        writePosition = scan(segments.lastEntry().getValue());
+
+        if (writeSegment == drainedSegment && writePosition < drainedPosition) {
+            throw new IllegalStateException("The event journal in " + directory + " is shorter than its checkpoint");
+        }
+        if (writeSegment > drainedSegment || writePosition > drainedPosition) {
+            appendedEvents = countUndrained();
+            logger.info("Event journal opened with {} events not published yet, segments {}-{}", appendedEvents,
+                drainedSegment, writeSegment);
+        }
+    }
+
+    // an entry's payload starts with the number of its events
+    private long countUndrained() {
+        long count = 0;
+        long number = drainedSegment;
+        int position = drainedPosition;
+
+        while (true) {
+            MappedByteBuffer segment = segments.get(number);
+            int length = number == writeSegment && position >= writePosition ? 0 : entryLength(segment, position);
+
+            if (length == 0) {
+                if (number == writeSegment) {
+                    return count;
+                }
+                number = segments.higherKey(number);
+                position = 0;
+                continue;
+            }
+            count += segment.getInt(position + HEADER);
+            position += HEADER + length;
+        }
+    }
+
+    private MappedByteBuffer map(long number) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile(number), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private Path segmentFile(long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    // returns the position after the last valid entry
+    private int scan(ByteBuffer segment) {
+        int position = 0;
+        int length;
+
+        while ((length = entryLength(segment, position)) > 0) {
+            position += HEADER + length;
+        }
+        return position;
+    }
+
+    // 0 at the end of the segment or at an invalid (torn) entry
+    private int entryLength(ByteBuffer segment, int position) {
+        if (position + HEADER > segmentSize) {
+            return 0;
+        }
+        int length = segment.getInt(position);
+
+        if (length <= 0 || position + HEADER + length > segmentSize) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = segment.duplicate();
+        payload.position(position + HEADER).limit(position + HEADER + length);
+        crc.update(payload);
+        return (int)crc.getValue() == segment.getInt(position + Integer.BYTES) ? length : 0;
+    }
+
+    /**
+     * Appends the events as a single entry and forces it to the disk.
+     */
+    public synchronized void append(List<? extends Event> events) {
+        byte[] payload = encode(events);
+
+        if (HEADER + payload.length + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("Journal entry too large: " + payload.length + " bytes");
+        }
+        if (writePosition + HEADER + payload.length + Integer.BYTES > segmentSize) {
+            roll();
+        }
+        MappedByteBuffer segment = segments.get(writeSegment);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer target = segment.duplicate();
+        target.position(writePosition + HEADER);
+        target.put(payload);
+        segment.putInt(writePosition + Integer.BYTES, (int)crc.getValue());
+        segment.putInt(writePosition, payload.length);
+        // the end marker, the segment may contain a discarded entry
+        segment.putInt(writePosition + HEADER + payload.length, 0);
+        segment.force();
+        writePosition += HEADER + payload.length;
+        appendedEvents += events.size();
+    }
+
+    private void roll() {
+        try {
+            // the previous segment ends with the end marker of its last entry
+            writeSegment++;
+            writePosition = 0;
+            segments.put(writeSegment, map(writeSegment));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create a new event journal segment", e);
+        }
+    }
+
+    /**
+     * Reads up to {@code maxEntries} entries following the last committed one.
+     */
+    public synchronized List<Entry> read(int maxEntries) {
+        List<Entry> result = new ArrayList<>();
+        long number = drainedSegment;
+        int position = drainedPosition;
+        long sequence = drainedEvents;
+
+        while (result.size() < maxEntries) {
+            MappedByteBuffer segment = segments.get(number);
+            int length = number == writeSegment && position >= writePosition ? 0 : entryLength(segment, position);
+
+            if (length == 0) {
+                if (number == writeSegment) {
+                    break;
+                }
+                number = segments.higherKey(number);
+                position = 0;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            ByteBuffer source = segment.duplicate();
+            source.position(position + HEADER);
+            source.get(payload);
+            position += HEADER + length;
+            List<Event> events = decode(payload);
+            sequence += events.size();
+            result.add(new Entry(events, number, position, sequence));
+        }
+        return result;
+    }
+
+    /**
+     * Marks the entry and all the previous ones as published, so they are not read again. The segments containing
+     * only published entries are deleted.
+     */
+    public synchronized void commit(Entry entry) {
+        drainedSegment = entry.segment;
+        drainedPosition = entry.end;
+        drainedEvents = entry.sequence;
+
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+            buffer.putLong(drainedSegment).putInt(drainedPosition).flip();
+            checkpoint.write(buffer, 0);
+            checkpoint.force(false);
+
+            while (segments.firstKey() < drainedSegment) {
+                Files.deleteIfExists(segmentFile(segments.pollFirstEntry().getKey()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to commit the event journal in " + directory, e);
+        }
+    }
+
+    public synchronized boolean isDrained() {
+        return drainedSegment == writeSegment && drainedPosition == writePosition;
+    }
+
+    /**
+     * Returns the number of events appended and not committed yet.
+     */
+    public synchronized long getBacklog() {
+        return appendedEvents - drainedEvents;
+    }
+
+    private static byte[] encode(List<? extends Event> events) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(events.size());
+
+            for (Event event : events) {
+                // the class of the event itself, so its serde accepts it
+                @SuppressWarnings("unchecked")
+                Class<Event> type = (Class<Event>)event.getClass();
+                byte[] data = SerdeRegistry.serde(type).serialize(Topics.eventTopicName(type), event);
+                out.writeUTF(type.getName());
+                out.writeInt(data.length);
+                out.write(data);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<Event> decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int count = in.readInt();
+            List<Event> events = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                Class<? extends Event> type = Class.forName(in.readUTF()).asSubclass(Event.class);
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                // the format is detected from the data, it does not depend on the configuration
+                events.add(SerdeRegistry.serde(type).deserialize(Topics.eventTopicName(type), data));
+            }
+            return Collections.unmodifiableList(events);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Invalid event journal entry", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            checkpoint.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close the event journal checkpoint", e);
+        }
+        segments.clear();
+    }
+
+    public static class Entry {
+
+        private final List<Event> events;
+        private final long segment;
+        private final int end;
+        // the events read since opening, up to this entry
+        private final long sequence;
+
+        private Entry(List<Event> events, long segment, int end, long sequence) {
+            this.events = events;
+            this.segment = segment;
+            this.end = end;
+            this.sequence = sequence;
+        }
+
+        public List<Event> getEvents() {
+            return events;
+        }
+    }
+}
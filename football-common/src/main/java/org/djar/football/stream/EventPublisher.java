@@ -1,50 +1,344 @@
 package org.djar.football.stream;
 
-import java.util.UUID;
-import org.apache.kafka.clients.producer.KafkaProducer;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.AuthorizationException;
+import org.apache.kafka.common.errors.OutOfOrderSequenceException;
+import org.apache.kafka.common.errors.ProducerFencedException;
 import org.djar.football.model.event.Event;
 import org.djar.football.model.event.EventMetadata;
 import org.djar.football.util.Topics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
-public class EventPublisher {
+/**
+ * Publishes the events from a dedicated sender thread, so the request threads are never blocked by the producer
+ * (waiting for metadata or buffer space). The number of events being published is bounded, the events above the
+ * limit are rejected with {@link PublisherOverloadedException}.
+ * <p>
+ * With an {@link EventJournal} the events are acknowledged as soon as they are journaled, so the requests do not
+ * wait for Kafka at all, and published in the background. The journal backlog is bounded the same way.
+ */
+public class EventPublisher implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(EventPublisher.class);
 
-    private final KafkaProducer<String, Event> producer;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+    public static final long DEFAULT_MAX_JOURNAL_BACKLOG = 100_000;
+
+    private static final int DRAIN_BATCH = 100;
+    private static final long DRAIN_RETRY_MS = 1000;
+
+    // weight of the last sample in the average send latency
+    private static final double LATENCY_WEIGHT = 0.1;
+
+    private final Producer<String, Event> producer;
+    // null if transactions are not enabled
+    private final Supplier<Producer<String, Event>> transactionalProducers;
     private final String processId;
     private final int apiVersion;
+    private final EventIdGenerator idGenerator;
+    private final Scheduler sender;
+
+    private volatile int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private volatile long maxJournalBacklog = DEFAULT_MAX_JOURNAL_BACKLOG;
+    private volatile Semaphore inFlight = new Semaphore(maxInFlight);
+    private volatile ProducerProfile profile;
+    // the bits of the average as a double, updated by several threads
+    private final AtomicLong sendLatency = new AtomicLong(Double.doubleToLongBits(Double.NaN));
+
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
 
-    public EventPublisher(KafkaProducer<String, Event> producer, String processId, int apiVersion) {
+    private EventJournal journal;
+    private Scheduler journalWriter;
+    // created on the first transaction
+    private Producer<String, Event> transactionalProducer;
+
+    public EventPublisher(Producer<String, Event> producer, String processId, int apiVersion) {
+        this(producer, null, processId, apiVersion);
+    }
+
+    /**
+     * @param transactionalProducers creates a producer with a transactional.id, required by {@link #fireAll(List)}
+     *                               for more than one event; a new one is created after a fatal error (e.g. when
+     *                               fenced off), the single events are sent without transactions
+     */
+    public EventPublisher(Producer<String, Event> producer, Supplier<Producer<String, Event>> transactionalProducers,
+            String processId, int apiVersion) {
         this.producer = producer;
+        this.transactionalProducers = transactionalProducers;
         this.processId = processId;
         this.apiVersion = apiVersion;
+        this.idGenerator = new EventIdGenerator(processId);
+        this.sender = Schedulers.newSingle("event-sender", true);
+    }
+
+    /**
+     * Sets the maximum number of events sent and not acknowledged yet, should be called before publishing.
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Returns the number of events sent and not acknowledged yet (the sender queue depth).
+     */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * Sets the maximum number of journaled events not published to Kafka yet, more are rejected with
+     * {@link PublisherOverloadedException}.
+     */
+    public void setMaxJournalBacklog(long maxJournalBacklog) {
+        this.maxJournalBacklog = maxJournalBacklog;
+    }
+
+    /**
+     * Returns the number of journaled events not published to Kafka yet, 0 without a journal.
+     */
+    public long getJournalBacklog() {
+        return journal != null ? journal.getBacklog() : 0;
+    }
+
+    /**
+     * Sets the profile the producer was created with, used only for reporting. An {@link AdaptiveProducer} reports
+     * its current profile itself.
+     */
+    public void setProfile(ProducerProfile profile) {
+        this.profile = profile;
+    }
+
+    public ProducerProfile getProfile() {
+        return producer instanceof AdaptiveProducer ? ((AdaptiveProducer<?, ?>)producer).getProfile() : profile;
+    }
+
+    /**
+     * Returns the moving average of the time from sending an event (or beginning a transaction) to its
+     * acknowledgement in milliseconds, NaN if nothing has been sent yet.
+     */
+    public double getSendLatency() {
+        return Double.longBitsToDouble(sendLatency.get());
+    }
+
+    /**
+     * Sets the journal the events are appended to instead of waiting for Kafka. The events are acknowledged once
+     * they are in the journal and published to Kafka in order by the sender thread, the events left in the journal
+     * by the previous run are published first. The journal is closed with this publisher.
+     */
+    public void setJournal(EventJournal journal) {
+        this.journal = journal;
+        this.journalWriter = Schedulers.newSingle("event-journal", true);
+
+        if (!journal.isDrained()) {
+            requestDrain();
+        }
     }
 
     public Mono<Void> fire(Event event) {
-        return Mono.create(sink -> {
+        if (journal != null) {
+            return journaled(Collections.singletonList(event));
+        }
+        return bounded(1, Mono.create(sink -> {
             fillOut(event);
-            String topic = Topics.eventTopicName(event.getClass());
-            ProducerRecord<String, Event> record = new ProducerRecord<>(topic, 0, event.getMetadata().getTimestamp(),
-                    event.getAggId(), event);
+            ProducerRecord<String, Event> record = record(event);
+            long start = System.nanoTime();
 
             producer.send(record, (metadata, exception) -> {
                 if (exception == null) {
+                    recordLatency(start);
                     sink.success();
                     logger.debug("New {} event created: {}", event.getClass().getSimpleName(), event.getAggId());
                 } else {
                     sink.error(exception);
                 }
             });
+        }));
+    }
+
+    /**
+     * Publishes the events in a single transaction, so the consumers reading committed records (Kafka Streams)
+     * see either all of them or none. A single event is published like by {@link #fire(Event)}, without
+     * a transaction.
+     */
+    public Mono<Void> fireAll(List<? extends Event> events) {
+        if (events.size() <= 1) {
+            return events.isEmpty() ? Mono.empty() : fire(events.get(0));
+        }
+        if (transactionalProducers == null) {
+            return Mono.error(new IllegalStateException("Transactions are not enabled for " + processId));
+        }
+        if (journal != null) {
+            return journaled(events);
+        }
+        // committing blocks until all the records are acknowledged
+        return bounded(events.size(), Mono.fromRunnable(() -> {
+            events.forEach(this::fillOut);
+            sendInTransaction(events);
+        }));
+    }
+
+    private Mono<Void> journaled(List<? extends Event> events) {
+        return Mono.<Void>fromRunnable(() -> {
+            long backlog = journal.getBacklog();
+
+            if (backlog + events.size() > maxJournalBacklog) {
+                throw new PublisherOverloadedException("Too many journaled events not published yet: " + backlog
+                    + ", the limit is " + maxJournalBacklog);
+            }
+            events.forEach(this::fillOut);
+
+            try {
+                journal.append(events);
+            } catch (Error e) {
+                // an error thrown to Reactor would not fail the request, it would never complete
+                throw new IllegalStateException("Unable to journal the events", e);
+            }
+        }).subscribeOn(journalWriter).doOnSuccess(nothing -> requestDrain());
+    }
+
+    private void requestDrain() {
+        if (drainRequested.compareAndSet(false, true)) {
+            sender.schedule(this::drain);
+        }
+    }
+
+    // runs on the sender thread, so the journal entries are published in order
+    private void drain() {
+        drainRequested.set(false);
+
+        try {
+            List<EventJournal.Entry> entries;
+
+            while (!(entries = journal.read(DRAIN_BATCH)).isEmpty()) {
+                publish(entries);
+                journal.commit(entries.get(entries.size() - 1));
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to publish the journaled events, retrying in {} ms", DRAIN_RETRY_MS, e);
+
+            if (drainRequested.compareAndSet(false, true)) {
+                sender.schedule(this::drain, DRAIN_RETRY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // the entries of several events (fireAll) are published in their own transactions
+    private void publish(List<EventJournal.Entry> entries) throws Exception {
+        List<Event> events = new ArrayList<>();
+
+        for (EventJournal.Entry entry : entries) {
+            if (entry.getEvents().size() > 1) {
+                send(events);
+                events.clear();
+                sendInTransaction(entry.getEvents());
+            } else {
+                events.addAll(entry.getEvents());
+            }
+        }
+        send(events);
+    }
+
+    private void send(List<Event> events) throws Exception {
+        if (events.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Future<RecordMetadata>> results = new ArrayList<>(events.size());
+
+        for (Event event : events) {
+            results.add(producer.send(record(event)));
+        }
+        producer.flush();
+
+        for (Future<RecordMetadata> result : results) {
+            result.get();
+        }
+        recordLatency(start);
+    }
+
+    private Mono<Void> bounded(int events, Mono<Void> send) {
+        return Mono.defer(() -> {
+            Semaphore permits = inFlight;
+
+            if (!permits.tryAcquire(events)) {
+                return Mono.error(new PublisherOverloadedException(getInFlight(), maxInFlight));
+            }
+            return send.subscribeOn(sender).doFinally(signal -> permits.release(events));
         });
     }
 
+    // a producer runs one transaction at a time
+    private synchronized void sendInTransaction(List<? extends Event> events) {
+        // the events sent before by the other producer are written first, the commit waits for the transaction
+        producer.flush();
+
+        if (transactionalProducer == null) {
+            transactionalProducer = transactionalProducers.get();
+            transactionalProducer.initTransactions();
+        }
+        long start = System.nanoTime();
+
+        try {
+            transactionalProducer.beginTransaction();
+
+            for (Event event : events) {
+                transactionalProducer.send(record(event));
+            }
+            transactionalProducer.commitTransaction();
+            recordLatency(start);
+        } catch (ProducerFencedException | OutOfOrderSequenceException | AuthorizationException e) {
+            // fatal, the producer cannot be used anymore, the next transaction initializes a new one
+            logger.error("Transactional event producer failed, it will be recreated", e);
+            transactionalProducer.close();
+            transactionalProducer = null;
+            throw e;
+        } catch (KafkaException e) {
+            transactionalProducer.abortTransaction();
+            throw e;
+        }
+        logger.debug("{} events created in a transaction", events.size());
+    }
+
+    // called by the producers' I/O threads, or the sender thread in transactions
+    private void recordLatency(long start) {
+        double latency = (System.nanoTime() - start) / 1e6;
+        sendLatency.updateAndGet(bits -> {
+            double previous = Double.longBitsToDouble(bits);
+            return Double.doubleToLongBits(Double.isNaN(previous) ? latency
+                : previous + LATENCY_WEIGHT * (latency - previous));
+        });
+    }
+
+    // the partition is chosen by the producer's partitioner, see AggregatePartitioner
+    private ProducerRecord<String, Event> record(Event event) {
+        String topic = Topics.eventTopicName(event.getClass());
+        ProducerRecord<String, Event> record = new ProducerRecord<>(topic, null,
+                event.getMetadata().getTimestamp(), event.getAggId(), event);
+        EventHeaders.write(event.getMetadata(), record.headers());
+        return record;
+    }
+
     public void fillOut(Event event) {
         EventMetadata md = event.getMetadata();
-        md.setEventId(generateId());
+        md.setEventId(idGenerator.next());
         md.setProcessId(processId);
         md.setVersion(apiVersion);
 
@@ -53,7 +347,23 @@ public class EventPublisher {
         }
     }
 
-    private String generateId() {
-        return UUID.randomUUID().toString();
+    @Override
+    public void close() {
+        sender.dispose();
+
+        if (journal != null) {
+            journalWriter.dispose();
+            journal.close();
+        }
+
+        if (producer != null) {
+            producer.close();
+        }
+
+        synchronized (this) {
+            if (transactionalProducer != null) {
+                transactionalProducer.close();
+            }
+        }
     }
 }
@@ -0,0 +1,125 @@
+package org.djar.football.stream;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.djar.football.repo.CompositeKey;
+import org.djar.football.repo.IdDictionary;
+
+/**
+ * Passes the records whose keys have numbers assigned by {@link IdDictionary}, so the keys can be written by
+ * {@link DictionaryKeySerde}. The records with new keys are kept in a store (key|sequence), their numbers are
+ * requested and the records are forwarded in order once the numbers are read, checked every
+ * {@link #CHECK_INTERVAL_MS}. The stream thread never waits for the assigner.
+ */
+public class IdAssignment {
+
+    public static final long CHECK_INTERVAL_MS = 100;
+
+    private IdAssignment() {
+    }
+
+    public static <V> StoreBuilder<KeyValueStore<CompositeKey, V>> storeBuilder(String name, Serde<V> serde) {
+        return Stores.keyValueStoreBuilder(StreamsUtils.storeBackend(name).supplier(name), new CompositeKeySerde(),
+            serde);
+    }
+
+    static class Transformer<V> implements org.apache.kafka.streams.kstream.Transformer<String, V,
+            KeyValue<String, V>> {
+
+        private final IdDictionary dictionary;
+        private final String storeName;
+
+        private ProcessorContext context;
+        private KeyValueStore<CompositeKey, V> store;
+        // the keys of the records in the store, all the records of a key wait once one does
+        private final Set<String> waiting = new HashSet<>();
+        private long sequence;
+
+        Transformer(IdDictionary dictionary, String storeName) {
+            this.dictionary = dictionary;
+            this.storeName = storeName;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void init(ProcessorContext context) {
+            this.context = context;
+            this.store = (KeyValueStore<CompositeKey, V>)context.getStateStore(storeName);
+
+            // the records restored from the changelog
+            try (KeyValueIterator<CompositeKey, V> iterator = store.all()) {
+                while (iterator.hasNext()) {
+                    List<Object> components = iterator.next().key.components();
+                    waiting.add((String)components.get(0));
+                    sequence = Math.max(sequence, (Long)components.get(1) + 1);
+                }
+            }
+            context.schedule(CHECK_INTERVAL_MS, PunctuationType.WALL_CLOCK_TIME, timestamp -> forwardAssigned());
+        }
+
+        @Override
+        public KeyValue<String, V> transform(String key, V value) {
+            if (key == null || !waiting.contains(key) && isAssigned(key)) {
+                return KeyValue.pair(key, value);
+            }
+            store.put(CompositeKey.of(key, sequence++), value);
+            waiting.add(key);
+            return null;
+        }
+
+        private boolean isAssigned(String key) {
+            if (dictionary.find(key) != null) {
+                return true;
+            }
+            dictionary.request(key);
+            // assigned immediately by a local dictionary
+            return dictionary.find(key) != null;
+        }
+
+        private void forwardAssigned() {
+            Iterator<String> keys = waiting.iterator();
+
+            while (keys.hasNext()) {
+                String key = keys.next();
+
+                if (!isAssigned(key)) {
+                    continue;
+                }
+                CompositeKey prefix = CompositeKey.of(key);
+                List<CompositeKey> forwarded = new ArrayList<>();
+
+                try (KeyValueIterator<CompositeKey, V> iterator = store.range(prefix, prefix.prefixEnd())) {
+                    while (iterator.hasNext()) {
+                        KeyValue<CompositeKey, V> record = iterator.next();
+                        context.forward(key, record.value);
+                        forwarded.add(record.key);
+                    }
+                }
+                // not deleted while iterating, an in-memory store doesn't allow it
+                forwarded.forEach(store::delete);
+                keys.remove();
+            }
+        }
+
+        @Override
+        @Deprecated
+        public KeyValue<String, V> punctuate(long timestamp) {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.djar.football.stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.IOException;
+
+/**
+ * Reflection-free reader and writer of a single type, usually generated with
+ * {@code org.djar.football.codegen.GenerateCodec}. The output is compatible with {@link SerdeRegistry#mapper()}.
+ */
+public interface JsonCodec<T> {
+
+    void write(JsonGenerator generator, T value) throws IOException;
+
+    /**
+     * Reads the value starting from the current token of the parser.
+     */
+    T read(JsonParser parser) throws IOException;
+}
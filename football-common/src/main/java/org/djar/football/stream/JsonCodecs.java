@@ -0,0 +1,199 @@
+package org.djar.football.stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Codecs of the basic types used by the generated ones.
+ */
+public class JsonCodecs {
+
+    public static final JsonCodec<String> STRING = new JsonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, String value) throws IOException {
+            generator.writeString(value);
+        }
+
+        @Override
+        public String read(JsonParser parser) throws IOException {
+            return parser.getValueAsString();
+        }
+    };
+
+    public static final JsonCodec<Integer> INTEGER = new JsonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, Integer value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(value);
+            }
+        }
+
+        @Override
+        public Integer read(JsonParser parser) throws IOException {
+            return parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsInt();
+        }
+    };
+
+    public static final JsonCodec<Long> LONG = new JsonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, Long value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(value);
+            }
+        }
+
+        @Override
+        public Long read(JsonParser parser) throws IOException {
+            return parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsLong();
+        }
+    };
+
+    public static final JsonCodec<Double> DOUBLE = new JsonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, Double value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(value);
+            }
+        }
+
+        @Override
+        public Double read(JsonParser parser) throws IOException {
+            return parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsDouble();
+        }
+    };
+
+    public static final JsonCodec<Boolean> BOOLEAN = new JsonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, Boolean value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                generator.writeBoolean(value);
+            }
+        }
+
+        @Override
+        public Boolean read(JsonParser parser) throws IOException {
+            return parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsBoolean();
+        }
+    };
+
+    // the same format as written by JSR310Module with WRITE_DATES_AS_TIMESTAMPS disabled
+    public static final JsonCodec<LocalDateTime> LOCAL_DATE_TIME = new JsonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, LocalDateTime value) throws IOException {
+            generator.writeString(value == null ? null : value.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        }
+
+        @Override
+        public LocalDateTime read(JsonParser parser) throws IOException {
+            return parser.currentToken() == JsonToken.VALUE_NULL ? null : LocalDateTime.parse(parser.getText());
+        }
+    };
+
+    private JsonCodecs() {
+    }
+
+    public static <E extends Enum<E>> JsonCodec<E> enumCodec(Class<E> type) {
+        return new JsonCodec<>() {
+            @Override
+            public void write(JsonGenerator generator, E value) throws IOException {
+                generator.writeString(value == null ? null : value.name());
+            }
+
+            @Override
+            public E read(JsonParser parser) throws IOException {
+                return parser.currentToken() == JsonToken.VALUE_NULL ? null : Enum.valueOf(type, parser.getText());
+            }
+        };
+    }
+
+    public static <E> JsonCodec<List<E>> list(JsonCodec<E> elementCodec) {
+        return collection(elementCodec, ArrayList::new);
+    }
+
+    public static <E> JsonCodec<Set<E>> set(JsonCodec<E> elementCodec) {
+        return collection(elementCodec, HashSet::new);
+    }
+
+    private static <E, C extends Collection<E>> JsonCodec<C> collection(JsonCodec<E> elementCodec,
+            Supplier<C> factory) {
+        return new JsonCodec<>() {
+            @Override
+            public void write(JsonGenerator generator, C value) throws IOException {
+                if (value == null) {
+                    generator.writeNull();
+                    return;
+                }
+                generator.writeStartArray();
+
+                for (E element : value) {
+                    elementCodec.write(generator, element);
+                }
+                generator.writeEndArray();
+            }
+
+            @Override
+            public C read(JsonParser parser) throws IOException {
+                if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                    return null;
+                }
+                expect(parser, JsonToken.START_ARRAY);
+                C result = factory.get();
+
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    result.add(elementCodec.read(parser));
+                }
+                return result;
+            }
+        };
+    }
+
+    public static <T> void writeField(JsonGenerator generator, String name, T value, JsonCodec<T> codec)
+            throws IOException {
+        generator.writeFieldName(name);
+        codec.write(generator, value);
+    }
+
+    public static void expect(JsonParser parser, JsonToken token) throws IOException {
+        if (parser.currentToken() != token) {
+            throw new JsonParseException(parser, "Expected " + token + ", found " + parser.currentToken());
+        }
+    }
+
+    /**
+     * Finds the codec generated for the given type.
+     *
+     * @return null if there is no generated codec
+     */
+    public static <T> JsonCodec<T> find(Class<T> type) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            Class<?> codecClass = Class.forName(type.getName() + "JsonCodec", true, type.getClassLoader());
+            return (JsonCodec<T>)codecClass.getField("INSTANCE").get(null);
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Invalid codec generated for " + type, e);
+        }
+    }
+}
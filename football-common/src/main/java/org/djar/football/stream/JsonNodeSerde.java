@@ -1,12 +1,8 @@
 package org.djar.football.stream;
 
-import com.fasterxml.jackson.annotation.JsonAutoDetect;
-import com.fasterxml.jackson.annotation.PropertyAccessor;
-import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JSR310Module;
 import java.util.Map;
 import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.Deserializer;
@@ -18,13 +14,7 @@ public class JsonNodeSerde implements Serde<JsonNode>, Serializer<JsonNode>, Des
     private final ObjectMapper mapper;
 
     public JsonNodeSerde() {
-        mapper = new ObjectMapper();
-        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
-        mapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
-        // noinspection deprecation
-        mapper.registerModule(new JSR310Module());
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        mapper = SerdeRegistry.mapper();
     }
 
     @Override
@@ -33,10 +23,19 @@ public class JsonNodeSerde implements Serde<JsonNode>, Serializer<JsonNode>, Des
 
     @Override
     public byte[] serialize(String topic, JsonNode data) {
+        ThreadOutput output = ThreadOutput.get();
+        boolean failed = true;
+
         try {
-            return mapper.writeValueAsBytes(data);
+            JsonGenerator generator = output.generator(WireFormat.JSON);
+            mapper.writeTree(generator, data);
+            byte[] result = output.toByteArray(generator);
+            failed = false;
+            return result;
         } catch (Exception e) {
             throw new SerializationException("Error serializing " + data.getClass() + " " + data, e);
+        } finally {
+            output.reset(failed);
         }
     }
 
@@ -48,7 +47,7 @@ public class JsonNodeSerde implements Serde<JsonNode>, Serializer<JsonNode>, Des
         try {
             return mapper.readTree(data);
         } catch (Exception e) {
-            throw new SerializationException("Error deserializing from " + new String(data), e);
+            throw new SerializationException("Error deserializing from " + WireFormat.preview(data), e);
         }
     }
 
@@ -1,35 +1,58 @@
 package org.djar.football.stream;
 
-import com.fasterxml.jackson.annotation.JsonAutoDetect;
-import com.fasterxml.jackson.annotation.PropertyAccessor;
-import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JSR310Module;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import java.util.Map;
 import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.ExtendedDeserializer;
+import org.apache.kafka.common.serialization.ExtendedSerializer;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serializer;
+import org.djar.football.model.event.Event;
 
-public class JsonPojoSerde<T> implements Serde<T>, Serializer<T>, Deserializer<T> {
+/**
+ * Serializes POJOs as JSON or Smile depending on the topic, see {@link SerdeRegistry#wireFormat(String)}.
+ * Events published with {@link EventHeaders} are written without the metadata, it is restored from the headers
+ * when the record is read.
+ * <p>
+ * Types with a generated {@link JsonCodec} are handled by the codec instead of the data binding.
+ */
+public class JsonPojoSerde<T> implements Serde<T>, ExtendedSerializer<T>, ExtendedDeserializer<T> {
 
-    private final ObjectMapper mapper;
-    private final Class<T> clazz;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final ObjectReader smileReader;
+    private final ObjectWriter smileWriter;
+    private final ObjectWriter headlessWriter;
+    private final ObjectWriter headlessSmileWriter;
+    private final JsonCodec<T> codec;
 
     public JsonPojoSerde() {
         this(null);
     }
 
     public JsonPojoSerde(Class<T> clazz) {
-        this.clazz = clazz;
-        mapper = new ObjectMapper();
-        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
-        mapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
-        // noinspection deprecation
-        mapper.registerModule(new JSR310Module());
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.reader = reader(SerdeRegistry.mapper(WireFormat.JSON), clazz);
+        this.writer = writer(SerdeRegistry.mapper(WireFormat.JSON), clazz);
+        this.smileReader = reader(SerdeRegistry.mapper(WireFormat.SMILE), clazz);
+        this.smileWriter = writer(SerdeRegistry.mapper(WireFormat.SMILE), clazz);
+        this.headlessWriter = writer(SerdeRegistry.headlessMapper(WireFormat.JSON), clazz);
+        this.headlessSmileWriter = writer(SerdeRegistry.headlessMapper(WireFormat.SMILE), clazz);
+        this.codec = JsonCodecs.find(clazz);
+    }
+
+    // the untyped serde (Kafka producers) resolves the serializer by the runtime type
+    private static ObjectReader reader(ObjectMapper mapper, Class<?> clazz) {
+        return clazz == null ? mapper.reader() : mapper.readerFor(clazz);
+    }
+
+    private static ObjectWriter writer(ObjectMapper mapper, Class<?> clazz) {
+        return clazz == null ? mapper.writer() : mapper.writerFor(clazz);
     }
 
     @Override
@@ -38,10 +61,36 @@ public class JsonPojoSerde<T> implements Serde<T>, Serializer<T>, Deserializer<T
 
     @Override
     public byte[] serialize(String topic, T data) {
+        return serialize(topic, data, false);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, T data) {
+        return serialize(topic, data, data instanceof Event && EventHeaders.contains(headers));
+    }
+
+    private byte[] serialize(String topic, T data, boolean headless) {
+        ThreadOutput output = ThreadOutput.get();
+        boolean failed = true;
+
         try {
-            return mapper.writeValueAsBytes(data);
+            WireFormat format = SerdeRegistry.wireFormat(topic);
+            JsonGenerator generator = output.generator(format);
+
+            if (codec != null) {
+                codec.write(generator, data);
+            } else if (format == WireFormat.SMILE) {
+                (headless ? headlessSmileWriter : smileWriter).writeValue(generator, data);
+            } else {
+                (headless ? headlessWriter : writer).writeValue(generator, data);
+            }
+            byte[] result = output.toByteArray(generator);
+            failed = false;
+            return result;
         } catch (Exception e) {
             throw new SerializationException("Error serializing " + data.getClass() + " " + data, e);
+        } finally {
+            output.reset(failed);
         }
     }
 
@@ -51,10 +100,34 @@ public class JsonPojoSerde<T> implements Serde<T>, Serializer<T>, Deserializer<T
             return null;
         }
         try {
-            return mapper.readValue(data, clazz);
+            WireFormat format = WireFormat.of(data);
+
+            if (codec != null) {
+                int offset = format == WireFormat.SMILE ? 1 : 0;
+
+                try (JsonParser parser = SerdeRegistry.mapper(format).getFactory()
+                        .createParser(data, offset, data.length - offset)) {
+                    parser.nextToken();
+                    return codec.read(parser);
+                }
+            }
+            if (format == WireFormat.SMILE) {
+                return smileReader.readValue(data, 1, data.length - 1);
+            }
+            return reader.readValue(data);
         } catch (Exception e) {
-            throw new SerializationException("Error deserializing from " + new String(data), e);
+            throw new SerializationException("Error deserializing from " + WireFormat.preview(data), e);
+        }
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        T result = deserialize(topic, data);
+
+        if (result instanceof Event) {
+            EventHeaders.read(headers, ((Event)result).getMetadata());
         }
+        return result;
     }
 
     @Override
@@ -70,4 +143,4 @@ public class JsonPojoSerde<T> implements Serde<T>, Serializer<T>, Deserializer<T
     public Deserializer<T> deserializer() {
         return this;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package org.djar.football.stream;
+
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.kafka.streams.KafkaStreams;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+/**
+ * The health of Kafka Streams started by {@link KafkaStreamsStarter#startAsync()}:
+ * <ul>
+ * <li>OUT_OF_SERVICE (not ready) while waiting for a dependency (see
+ * {@link KafkaStreamsStarter#startAsync(java.util.concurrent.CompletableFuture)}), for Kafka, rebalancing or
+ * restoring the stores,</li>
+ * <li>UP once running with all the stores restored,</li>
+ * <li>DOWN (not alive) if failed (the dependency too), stopped or rebalancing without restoring anything for longer
+ * than the streams startup timeout.</li>
+ * </ul>
+ * The restoration progress of each store is in the details.
+ */
+public class KafkaStreamsHealthIndicator extends AbstractHealthIndicator {
+
+    private final KafkaStreamsStarter starter;
+
+    public KafkaStreamsHealthIndicator(KafkaStreamsStarter starter) {
+        this.starter = starter;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        if (starter.whenStarted().isCompletedExceptionally()) {
+            builder.down().withDetail("state", "FAILED");
+            return;
+        }
+        KafkaStreams kafkaStreams = starter.getKafkaStreams();
+
+        if (kafkaStreams == null) {
+            builder.outOfService().withDetail("state", starter.isWaitingForDependency() ? "WAITING_FOR_DEPENDENCY"
+                : "WAITING_FOR_KAFKA");
+            return;
+        }
+        StoreRestoreListener restoreListener = starter.getRestoreListener();
+        KafkaStreams.State state = kafkaStreams.state();
+        boolean restoring = restoreListener.isRestoring();
+        builder.status(status(state, restoring, System.currentTimeMillis() - starter.getStateTime(),
+            starter.getStreamsStartupTimeout()));
+        builder.withDetail("state", state.name());
+
+        Map<String, Object> stores = new TreeMap<>();
+
+        for (Map.Entry<String, StoreRestoreListener.Progress> entry : restoreListener.getStores().entrySet()) {
+            StoreRestoreListener.Progress progress = entry.getValue();
+            stores.put(entry.getKey(), Map.of(
+                "restoring", progress.isRestoring(),
+                "restoredRecords", progress.getRestoredRecords(),
+                "totalRecords", progress.getTotalRecords()));
+        }
+        builder.withDetail("stores", stores);
+    }
+
+    // the stores are restored in the REBALANCING state and it may take long, rebalancing without restoring
+    // that long is the endless rebalancing though
+    static Status status(KafkaStreams.State state, boolean restoring, long stateDuration, long startupTimeout) {
+        switch (state) {
+            case RUNNING:
+                return restoring ? Status.OUT_OF_SERVICE : Status.UP;
+            case CREATED:
+            case REBALANCING:
+                return restoring || stateDuration <= startupTimeout ? Status.OUT_OF_SERVICE : Status.DOWN;
+            default:
+                return Status.DOWN;
+        }
+    }
+}
@@ -1,19 +1,30 @@
 package org.djar.football.stream;
 
+import static org.djar.football.util.Topics.EVENT_TOPIC_PREFIX;
 import static org.djar.football.util.Topics.TOPIC_NAME_PREFIX;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.KafkaAdminClient;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.metrics.Sensor;
 import org.apache.kafka.common.errors.RetriableException;
 import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.TopologyDescription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,8 +32,8 @@ public class KafkaStreamsStarter {
 
     private static final Logger logger = LoggerFactory.getLogger(KafkaStreamsStarter.class);
 
-    // the number of football topics - docker-compose.yml/kafka/KAFKA_CREATE_TOPICS
-    private static final int FB_TOPIC_COUNT = 12;
+    private static final long MIN_RETRY_BACKOFF_MS = 100;
+    private static final long MAX_RETRY_BACKOFF_MS = 2000;
 
     private final String kafkaBootstrapAddress;
     private final Topology topology;
@@ -30,6 +41,19 @@ public class KafkaStreamsStarter {
 
     private long kafkaTimeout = 120000;
     private long streamsStartupTimeout = 20000;
+    private String stateDir;
+    private boolean cleanUp;
+    private String processingGuarantee = StreamsConfig.EXACTLY_ONCE;
+    private long commitInterval;
+    private int streamThreads = 1;
+    private String metricsRecordingLevel = Sensor.RecordingLevel.DEBUG.name;
+    private TopicProvisioner topicProvisioner = new TopicProvisioner(1, (short)1);
+    private volatile StoreRestoreListener restoreListener;
+    private volatile KafkaStreams kafkaStreams;
+    private final CountDownLatch running = new CountDownLatch(1);
+    private final CompletableFuture<KafkaStreams> started = new CompletableFuture<>();
+    private volatile long stateTime;
+    private volatile boolean waitingForDependency;
 
     public KafkaStreamsStarter(String kafkaBootstrapAddress, Topology topology, String applicationId) {
         this.kafkaBootstrapAddress = kafkaBootstrapAddress;
@@ -41,52 +65,248 @@ public class KafkaStreamsStarter {
         this.kafkaTimeout = kafkaTimeout;
     }
 
+    /**
+     * Sets how long (ms) Kafka Streams may be rebalancing without restoring the stores, {@link #start()} fails
+     * then and {@link KafkaStreamsHealthIndicator} reports DOWN.
+     */
     public void setStreamsStartupTimeout(long streamsStartupTimeout) {
         this.streamsStartupTimeout = streamsStartupTimeout;
     }
 
+    /**
+     * Sets the directory of the local state, it should survive restarts, so the stores are not restored from their
+     * changelog topics. Kafka Streams' default is used if not set.
+     */
+    public void setStateDir(String stateDir) {
+        this.stateDir = stateDir;
+    }
+
+    /**
+     * Whether to delete the local state before starting, it is then restored from the changelog topics (the stores
+     * must log their changes, as the stores of {@link StreamsUtils} do; the committed offsets are kept).
+     */
+    public void setCleanUp(boolean cleanUp) {
+        this.cleanUp = cleanUp;
+    }
+
+    /**
+     * Sets exactly_once (the default) or at_least_once. In at_least_once mode the records processed since the last
+     * commit are processed again after a failure, so the topology has to be idempotent (see
+     * {@link StreamsUtils#setDeduplication(boolean)}).
+     */
+    public void setProcessingGuarantee(String processingGuarantee) {
+        this.processingGuarantee = processingGuarantee;
+    }
+
+    /**
+     * Sets the commit interval in ms, by default 1 ms for exactly_once (the results are visible to the read
+     * committed consumers only when committed) and Kafka Streams' default for at_least_once.
+     */
+    public void setCommitInterval(long commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * Sets the number of stream threads, 0 for as many as the available processors and the stream tasks allow.
+     * The threads are scaled within this instance only, each instance runs all the stream tasks.
+     */
+    public void setStreamThreads(int streamThreads) {
+        this.streamThreads = streamThreads;
+    }
+
+    /**
+     * Sets the recording level of the Kafka Streams metrics, DEBUG by default: the state store metrics (see
+     * {@link StoreBackend}) and the task ones are recorded only at this level, INFO records the thread metrics only.
+     */
+    public void setMetricsRecordingLevel(String metricsRecordingLevel) {
+        this.metricsRecordingLevel = metricsRecordingLevel;
+    }
+
+    /**
+     * Sets how the missing football topics used by the topology are created, 1 partition each by default.
+     */
+    public void setTopicProvisioner(TopicProvisioner topicProvisioner) {
+        this.topicProvisioner = topicProvisioner;
+    }
+
+    /**
+     * Returns the restoration progress of the state stores, available once started.
+     */
+    public StoreRestoreListener getRestoreListener() {
+        return restoreListener;
+    }
+
+    /**
+     * Returns Kafka Streams, null until started (while waiting for Kafka and the topics).
+     */
+    public KafkaStreams getKafkaStreams() {
+        return kafkaStreams;
+    }
+
+    /**
+     * Returns the time (ms) of the last state change of Kafka Streams.
+     */
+    public long getStateTime() {
+        return stateTime;
+    }
+
+    public long getStreamsStartupTimeout() {
+        return streamsStartupTimeout;
+    }
+
+    /**
+     * Returns Kafka Streams once started, the future completes exceptionally if unable to start, e.g. when Kafka is
+     * not available within the timeout set by {@link #setKafkaTimeout(long)}.
+     */
+    public CompletableFuture<KafkaStreams> whenStarted() {
+        return started;
+    }
+
+    /**
+     * Starts Kafka Streams and waits until it is running, the startup timeout is set by
+     * {@link #setStreamsStartupTimeout(long)}.
+     *
+     * @throws IllegalStateException if not running within the timeout
+     */
     public KafkaStreams start() {
+        KafkaStreams kafkaStreams = createAndStart();
+        awaitRunning();
+        return kafkaStreams;
+    }
+
+    /**
+     * Starts Kafka Streams in a background thread, so the application context is initialized meanwhile, without
+     * waiting for Kafka, the topics and the restoration of the stores (see {@link KafkaStreamsHealthIndicator}).
+     */
+    public CompletableFuture<KafkaStreams> startAsync() {
+        Thread thread = new Thread(() -> {
+            try {
+                createAndStart();
+            } catch (RuntimeException e) {
+                logger.error("Unable to start Kafka Streams", e);
+                started.completeExceptionally(e);
+            }
+        }, applicationId + "-starter");
+        thread.setDaemon(true);
+        thread.start();
+        return started;
+    }
+
+    /**
+     * Starts Kafka Streams like {@link #startAsync()} once the dependency completes, e.g. once a dictionary read by
+     * the serdes is loaded. Fails if the dependency fails.
+     */
+    public CompletableFuture<KafkaStreams> startAsync(CompletableFuture<?> dependency) {
+        waitingForDependency = true;
+        dependency.whenComplete((result, exception) -> {
+            waitingForDependency = false;
+
+            if (exception != null) {
+                logger.error("Unable to start Kafka Streams", exception);
+                started.completeExceptionally(exception);
+            } else {
+                startAsync();
+            }
+        });
+        return started;
+    }
+
+    /**
+     * Whether {@link #startAsync(CompletableFuture)} is waiting for its dependency.
+     */
+    public boolean isWaitingForDependency() {
+        return waitingForDependency;
+    }
+
+    private KafkaStreams createAndStart() {
+        // wait for Kafka and football topics creation to avoid endless REBALANCING problem
+        int streamTasks = waitForKafkaAndTopics();
+
         Properties props = new Properties();
         props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapAddress);
         props.put(StreamsConfig.CLIENT_ID_CONFIG, applicationId);
-        props.put(StreamsConfig.NUM_STANDBY_REPLICAS_CONFIG, 0);
         props.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
-        props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, "exactly_once");
-        props.put(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, 1); //commit asap
+        props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, processingGuarantee);
+        // the events of a transaction (EventPublisher.fireAll) are read all or none, in at_least_once mode too
+        props.put(StreamsConfig.consumerPrefix(ConsumerConfig.ISOLATION_LEVEL_CONFIG), "read_committed");
+        props.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, streamThreads > 0 ? streamThreads
+                : autoStreamThreads(Runtime.getRuntime().availableProcessors(), streamTasks));
+        props.put(StreamsConfig.ROCKSDB_CONFIG_SETTER_CLASS_CONFIG, RocksDBTuning.class);
+        props.put(StreamsConfig.METRICS_RECORDING_LEVEL_CONFIG, metricsRecordingLevel);
+
+        if (commitInterval > 0) {
+            props.put(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, commitInterval);
+        } else if (StreamsConfig.EXACTLY_ONCE.equals(processingGuarantee)) {
+            props.put(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, 1); //commit asap
+        }
+
+        if (stateDir != null && !stateDir.isEmpty()) {
+            props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir);
+        }
 
-        final KafkaStreams kafkaStreams = new KafkaStreams(topology, props);
+        KafkaStreams kafkaStreams = new KafkaStreams(topology, props);
 
         Runtime.getRuntime().addShutdownHook(new Thread(kafkaStreams::close));
         kafkaStreams.setUncaughtExceptionHandler((thread, exception) -> logger.error(thread.toString(), exception));
+        restoreListener = new StoreRestoreListener(kafkaStreams::metrics);
+        kafkaStreams.setGlobalStateRestoreListener(restoreListener);
+        kafkaStreams.setStateListener((newState, oldState) -> {
+            stateTime = System.currentTimeMillis();
+            logger.trace("Kafka Streams state has been changed from {} to {}", oldState, newState);
 
-        // wait for Kafka and football topics creation to avoid endless REBALANCING problem
-        waitForKafkaAndTopics();
-        startStreams(kafkaStreams);
+            if (oldState == KafkaStreams.State.REBALANCING && newState == KafkaStreams.State.RUNNING) {
+                running.countDown();
+            }
+        });
+        if (cleanUp) {
+            logger.info("Deleting the local state of {}", applicationId);
+            kafkaStreams.cleanUp();
+        }
+        stateTime = System.currentTimeMillis();
+        kafkaStreams.start();
+        this.kafkaStreams = kafkaStreams;
+        started.complete(kafkaStreams);
 
-        logger.debug("Started Kafka Streams, Kafka bootstrap: {}", kafkaBootstrapAddress);
+        logger.debug("Started Kafka Streams, Kafka bootstrap: {}, threads: {}", kafkaBootstrapAddress,
+                props.get(StreamsConfig.NUM_STREAM_THREADS_CONFIG));
         return kafkaStreams;
     }
 
-    private void waitForKafkaAndTopics() {
+    // the threads beyond the number of tasks would be idle, every instance runs all the tasks (its own application id)
+    static int autoStreamThreads(int processors, int streamTasks) {
+        return Math.max(1, Math.min(processors, streamTasks));
+    }
+
+    // returns the number of stream tasks
+    private int waitForKafkaAndTopics() {
         Properties properties = new Properties();
         properties.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapAddress);
         properties.put(AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, 2000);
 
         long timeout = System.currentTimeMillis() + kafkaTimeout;
+        long backoff = MIN_RETRY_BACKOFF_MS;
+        Set<String> requiredTopics = footballTopics(topology);
+        Set<String> missingTopics = null;
+        boolean provisioned = false;
 
-        // football topics are created at Kafka startup
-        // wait until all of them are created
+        // the topics provisioned by the services are created first, the others (Kafka Connect) are waited for
         try (AdminClient client = KafkaAdminClient.create(properties)) {
             while (true) {
-                Set<String> topicNames = null;
-
                 try {
-                    topicNames = client.listTopics().names().get();
+                    Set<String> topicNames = client.listTopics().names().get();
 
-                    if (containsFootballTopics(topicNames)) {
-                        logger.trace("Required topics exist: {}", topicNames);
-                        break;
+                    if (!provisioned) {
+                        topicProvisioner.provision(client, requiredTopics, topicNames);
+                        provisioned = true;
+                        topicNames = client.listTopics().names().get();
+                    }
+                    if (topicNames.containsAll(requiredTopics)) {
+                        logger.trace("Required topics exist: {}", requiredTopics);
+                        checkEventPartitions(client, topicNames);
+                        return streamTasks(client, topicNames);
                     }
+                    missingTopics = new TreeSet<>(requiredTopics);
+                    missingTopics.removeAll(topicNames);
                 } catch (ExecutionException e) {
                     // ignore retriable errors, especially timeouts
                     if (!(e.getCause() instanceof RetriableException)) {
@@ -94,56 +314,105 @@ public class KafkaStreamsStarter {
                     }
                     logger.trace("Trying to connect to Kafka {}", e.getMessage());
                 }
-                checkTimeout(kafkaBootstrapAddress, timeout, topicNames);
-                Thread.sleep(2000);
+                checkTimeout(kafkaBootstrapAddress, timeout, missingTopics);
+                Thread.sleep(backoff);
+                backoff = nextBackoff(backoff);
             }
         } catch (InterruptedException e) {
-            Thread.currentThread().interrupted();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Kafka " + kafkaBootstrapAddress, e);
         }
     }
 
-    private void checkTimeout(String kafkaBootstrapAddress, long timeout, Set<String> topicNames) {
+    // checks often at first, Kafka is usually up already, then backs off not to flood the log of a starting broker
+    static long nextBackoff(long backoff) {
+        return Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+    }
+
+    private void checkTimeout(String kafkaBootstrapAddress, long timeout, Set<String> missingTopics) {
         if (System.currentTimeMillis() > timeout) {
-            if (topicNames == null || topicNames.isEmpty()) {
+            if (missingTopics == null) {
                 throw new RuntimeException("Timeout waiting for Kafka. Kafka is not available "
                         + kafkaBootstrapAddress);
             }
-            throw new RuntimeException("Timeout waiting for Kafka. "
-                    + "Some '" + TOPIC_NAME_PREFIX + "*' topics are missing, found only: " + topicNames);
+            throw new RuntimeException("Timeout waiting for Kafka. Some '" + TOPIC_NAME_PREFIX
+                    + "*' topics are missing: " + missingTopics);
         }
     }
 
-    private boolean containsFootballTopics(Set<String> topicNames) {
-        return topicNames.stream().filter(name -> name.startsWith(TOPIC_NAME_PREFIX)).count() == FB_TOPIC_COUNT;
+    // the football topics read or written by the topology, the internal topics are created by Kafka Streams
+    static Set<String> footballTopics(Topology topology) {
+        Set<String> topics = new TreeSet<>();
+
+        for (TopologyDescription.Subtopology subtopology : topology.describe().subtopologies()) {
+            topics.addAll(StreamsUtils.sourceTopics(subtopology));
+
+            for (TopologyDescription.Node node : subtopology.nodes()) {
+                if (node instanceof TopologyDescription.Sink) {
+                    topics.add(((TopologyDescription.Sink)node).topic());
+                }
+            }
+        }
+        topics.removeIf(topic -> !topic.startsWith(TOPIC_NAME_PREFIX));
+        return topics;
     }
 
-    private void startStreams(KafkaStreams kafkaStreams) {
-        CountDownLatch streamsStartedLatch = new CountDownLatch(1);
+    private void checkEventPartitions(AdminClient client, Set<String> topicNames)
+            throws ExecutionException, InterruptedException {
+        Set<String> eventTopics = topicNames.stream().filter(name -> name.startsWith(EVENT_TOPIC_PREFIX))
+                .collect(Collectors.toSet());
+        Map<String, Integer> partitions = client.describeTopics(eventTopics).all().get().values().stream()
+                .collect(Collectors.toMap(TopicDescription::name, topic -> topic.partitions().size()));
+        checkCoPartitioned(partitions);
+    }
 
-        // wait for consistent state
-        kafkaStreams.setStateListener((newState, oldState) -> {
-            logger.trace("Kafka Streams state has been changed from {} to {}", oldState, newState);
+    private int streamTasks(AdminClient client, Set<String> topicNames)
+            throws ExecutionException, InterruptedException {
+        List<Set<String>> subtopologies = topology.describe().subtopologies().stream()
+                .map(StreamsUtils::sourceTopics).collect(Collectors.toList());
+        // the internal topics are prefixed with the application id
+        Set<String> sourceTopics = subtopologies.stream().flatMap(Set::stream)
+                .flatMap(topic -> Stream.of(topic, applicationId + "-" + topic))
+                .filter(topicNames::contains).collect(Collectors.toSet());
+        Map<String, Integer> partitions = client.describeTopics(sourceTopics).all().get().values().stream()
+                .collect(Collectors.toMap(TopicDescription::name, topic -> topic.partitions().size()));
+        return streamTasks(subtopologies, applicationId, partitions);
+    }
 
-            if (oldState == KafkaStreams.State.REBALANCING && newState == KafkaStreams.State.RUNNING) {
-                streamsStartedLatch.countDown();
-            }
-        });
-        kafkaStreams.cleanUp();
-        kafkaStreams.start();
-        long timeout = System.currentTimeMillis() + streamsStartupTimeout;
+    // a task per partition of each sub-topology; the internal topics not created yet are assumed to have
+    // as many partitions as the widest source topic
+    static int streamTasks(List<Set<String>> subtopologies, String applicationId, Map<String, Integer> partitions) {
+        int maxPartitions = partitions.values().stream().max(Integer::compare).orElse(1);
+        int tasks = 0;
+
+        for (Set<String> sourceTopics : subtopologies) {
+            tasks += sourceTopics.stream()
+                    .mapToInt(topic -> partitions.getOrDefault(topic,
+                        partitions.getOrDefault(applicationId + "-" + topic, maxPartitions)))
+                    .max().orElse(1);
+        }
+        return tasks;
+    }
 
+    // the events of a match are joined, so they have to be in the same partition number of all the event topics
+    static void checkCoPartitioned(Map<String, Integer> partitions) {
+        if (partitions.values().stream().distinct().count() > 1) {
+            throw new IllegalStateException("All '" + EVENT_TOPIC_PREFIX + "*' topics must have the same number "
+                    + "of partitions, found: " + partitions);
+        }
+    }
+
+    private void awaitRunning() {
         try {
-            streamsStartedLatch.await(timeout - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            running.await(streamsStartupTimeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
-            Thread.currentThread().interrupted();
+            Thread.currentThread().interrupt();
         }
-
         KafkaStreams.State state = kafkaStreams.state();
 
         if (state != KafkaStreams.State.RUNNING) {
-            logger.error("Unable to start Kafka Streams in {} ms, the current state is {}",
-                    streamsStartupTimeout, state);
-            System.exit(1);
+            throw new IllegalStateException("Unable to start Kafka Streams in " + streamsStartupTimeout
+                    + " ms, the current state is " + state);
         }
     }
 }
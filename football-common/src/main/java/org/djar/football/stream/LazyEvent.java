@@ -0,0 +1,85 @@
+package org.djar.football.stream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.kafka.common.errors.SerializationException;
+import org.djar.football.model.event.Event;
+import org.djar.football.model.event.EventMetadata;
+
+/**
+ * Serialized event that is decoded on demand. Single fields can be read from the raw bytes without binding
+ * the whole object, and the original bytes are written out by {@link LazyEventSerde}, so changes made to
+ * the decoded event are not serialized.
+ * <p>
+ * The metadata read from the record headers is applied by {@link #get()}, but it is not written back into the
+ * body, so it doesn't survive a repartition.
+ */
+public class LazyEvent<E extends Event> {
+
+    private final Class<E> type;
+    private final byte[] data;
+    private final EventMetadata metadata;
+
+    private E event;
+
+    LazyEvent(Class<E> type, byte[] data, EventMetadata metadata) {
+        this.type = type;
+        this.data = data;
+        this.metadata = metadata;
+    }
+
+    /**
+     * Returns a top-level field of the event as text, or null if it doesn't exist.
+     */
+    public String field(String name) {
+        WireFormat format = WireFormat.of(data);
+        int offset = format == WireFormat.SMILE ? 1 : 0;
+
+        try (JsonParser parser = SerdeRegistry.mapper(format).getFactory()
+                .createParser(data, offset, data.length - offset)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean found = name.equals(parser.getCurrentName());
+                JsonToken value = parser.nextToken();
+
+                if (found) {
+                    return value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (Exception e) {
+            throw new SerializationException("Error reading field " + name + " of " + type.getSimpleName(), e);
+        }
+    }
+
+    public E get() {
+        if (event == null) {
+            event = SerdeRegistry.serde(type).deserialize(null, data);
+
+            if (metadata != null) {
+                EventMetadata md = event.getMetadata();
+                md.setEventId(metadata.getEventId());
+                md.setProcessId(metadata.getProcessId());
+                md.setTimestamp(metadata.getTimestamp());
+                md.setVersion(metadata.getVersion());
+            }
+        }
+        return event;
+    }
+
+    public Class<E> getType() {
+        return type;
+    }
+
+    byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return type.getSimpleName() + (event != null ? " " + event : "");
+    }
+}
@@ -0,0 +1,66 @@
+package org.djar.football.stream;
+
+import java.util.Map;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.ExtendedDeserializer;
+import org.apache.kafka.common.serialization.ExtendedSerializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+import org.djar.football.model.event.Event;
+import org.djar.football.model.event.EventMetadata;
+
+/**
+ * Reads events as {@link LazyEvent} and writes the original bytes back, in the format they were read.
+ */
+public class LazyEventSerde<E extends Event> implements Serde<LazyEvent<E>>, ExtendedSerializer<LazyEvent<E>>,
+        ExtendedDeserializer<LazyEvent<E>> {
+
+    private final Class<E> type;
+
+    public LazyEventSerde(Class<E> type) {
+        this.type = type;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+    }
+
+    @Override
+    public byte[] serialize(String topic, LazyEvent<E> data) {
+        return data == null ? null : data.getData();
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, LazyEvent<E> data) {
+        return serialize(topic, data);
+    }
+
+    @Override
+    public LazyEvent<E> deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public LazyEvent<E> deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        EventMetadata metadata = new EventMetadata();
+        return new LazyEvent<>(type, data, EventHeaders.read(headers, metadata) ? metadata : null);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public Serializer<LazyEvent<E>> serializer() {
+        return this;
+    }
+
+    @Override
+    public Deserializer<LazyEvent<E>> deserializer() {
+        return this;
+    }
+}
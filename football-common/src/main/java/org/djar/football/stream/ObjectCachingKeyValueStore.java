@@ -0,0 +1,321 @@
+package org.djar.football.stream;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+
+/**
+ * Keeps the recently used aggregates as objects in front of a serialized store, so updating an aggregate (get,
+ * change, put) doesn't decode and encode it every time. The changed aggregates are written to the store on flush,
+ * i.e. on commit, and when evicted (the least recently used ones above the maximum size). The ratio of the gets
+ * served from the cache is reported as the hit-ratio-avg metric of stream-object-cache-metrics.
+ * <p>
+ * The cached objects are changed in place by the stream thread, so the other threads (interactive queries) read
+ * the store, or a copy of a changed object not written yet. The processors updating the store should synchronize
+ * on it, as {@link StreamsUtils#addProcessor} does.
+ */
+public class ObjectCachingKeyValueStore<V> implements KeyValueStore<String, V> {
+
+    static final String METRICS_GROUP = "stream-object-cache-metrics";
+
+    private final KeyValueStore<String, V> inner;
+    private final Serde<V> serde;
+    private final int maxEntries;
+    // access order, the eldest entry is the least recently used
+    private final Map<String, V> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // the changed entries not written yet, null values are deleted
+    private final Map<String, V> dirty = new LinkedHashMap<>();
+
+    private Thread streamThread;
+    private ProcessorContext context;
+    private Sensor hitRatio;
+
+    public ObjectCachingKeyValueStore(KeyValueStore<String, V> inner, Serde<V> serde, int maxEntries) {
+        this.inner = inner;
+        this.serde = serde;
+        this.maxEntries = maxEntries;
+    }
+
+    public static <V> StoreBuilder<KeyValueStore<String, V>> storeBuilder(
+            StoreBuilder<KeyValueStore<String, V>> inner, Serde<V> serde, int maxEntries) {
+        return new Builder<>(inner, serde, maxEntries);
+    }
+
+    /**
+     * Returns the average hit ratio of the store in all the tasks, NaN if not measured yet.
+     *
+     * @param metrics the metrics of the Kafka Streams instance
+     */
+    public static double hitRatio(Map<MetricName, ? extends Metric> metrics, String storeName) {
+        return metrics.entrySet().stream()
+            .filter(metric -> metric.getKey().group().equals(METRICS_GROUP)
+                && storeName.equals(metric.getKey().tags().get("object-cache-id")))
+            .mapToDouble(metric -> ((Number)metric.getValue().metricValue()).doubleValue())
+            .filter(value -> !Double.isNaN(value))
+            .average().orElse(Double.NaN);
+    }
+
+    @Override
+    public String name() {
+        return inner.name();
+    }
+
+    @Override
+    public synchronized void init(ProcessorContext context, StateStore root) {
+        this.context = context;
+        streamThread = Thread.currentThread();
+        inner.init(context, root);
+        hitRatio = context.metrics().addSensor(
+            "task." + context.taskId() + "." + name() + ".object-cache-hit-ratio", Sensor.RecordingLevel.INFO);
+        hitRatio.add(new MetricName("hit-ratio-avg", METRICS_GROUP, "The ratio of the gets served from the cache",
+            Map.of("client-id", streamThread.getName(), "task-id", context.taskId().toString(),
+                "object-cache-id", name())), new Avg());
+    }
+
+    @Override
+    public synchronized V get(String key) {
+        if (Thread.currentThread() != streamThread) {
+            return dirty.containsKey(key) ? copy(dirty.get(key)) : inner.get(key);
+        }
+        V value = cache.get(key);
+
+        if (value != null || dirty.containsKey(key)) {
+            hitRatio.record(1);
+            return value;
+        }
+        hitRatio.record(0);
+        value = inner.get(key);
+
+        if (value != null) {
+            cache(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized void put(String key, V value) {
+        if (value == null) {
+            cache.remove(key);
+        } else {
+            cache(key, value);
+        }
+        dirty.put(key, value);
+    }
+
+    @Override
+    public synchronized V putIfAbsent(String key, V value) {
+        V previous = get(key);
+
+        if (previous == null) {
+            put(key, value);
+        }
+        return previous;
+    }
+
+    @Override
+    public synchronized void putAll(List<KeyValue<String, V>> entries) {
+        for (KeyValue<String, V> entry : entries) {
+            put(entry.key, entry.value);
+        }
+    }
+
+    @Override
+    public synchronized V delete(String key) {
+        V previous = get(key);
+        put(key, null);
+        return previous;
+    }
+
+    @Override
+    public synchronized KeyValueIterator<String, V> range(String from, String to) {
+        return merge(inner.range(from, to), dirty.entrySet().stream()
+            .filter(entry -> entry.getKey().compareTo(from) >= 0 && entry.getKey().compareTo(to) <= 0)
+            .iterator());
+    }
+
+    @Override
+    public synchronized KeyValueIterator<String, V> all() {
+        return merge(inner.all(), dirty.entrySet().iterator());
+    }
+
+    // the changed entries override the stored ones
+    private KeyValueIterator<String, V> merge(KeyValueIterator<String, V> stored,
+            Iterator<Map.Entry<String, V>> changed) {
+        boolean copy = Thread.currentThread() != streamThread;
+        TreeMap<String, V> result = new TreeMap<>();
+
+        try (stored) {
+            stored.forEachRemaining(entry -> result.put(entry.key, entry.value));
+        }
+        changed.forEachRemaining(entry -> {
+            if (entry.getValue() == null) {
+                result.remove(entry.getKey());
+            } else {
+                result.put(entry.getKey(), copy ? copy(entry.getValue()) : entry.getValue());
+            }
+        });
+        return new ListIterator<>(new ArrayList<>(result.entrySet()));
+    }
+
+    @Override
+    public long approximateNumEntries() {
+        return inner.approximateNumEntries();
+    }
+
+    @Override
+    public synchronized void flush() {
+        for (Map.Entry<String, V> entry : dirty.entrySet()) {
+            inner.put(entry.getKey(), entry.getValue());
+        }
+        dirty.clear();
+        inner.flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (inner.isOpen()) {
+                flush();
+            }
+        } finally {
+            cache.clear();
+
+            if (hitRatio != null) {
+                context.metrics().removeSensor(hitRatio);
+                hitRatio = null;
+            }
+            inner.close();
+        }
+    }
+
+    @Override
+    public boolean persistent() {
+        return inner.persistent();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return inner.isOpen();
+    }
+
+    private void cache(String key, V value) {
+        cache.put(key, value);
+
+        if (cache.size() > maxEntries) {
+            Iterator<Map.Entry<String, V>> eldest = cache.entrySet().iterator();
+            String evicted = eldest.next().getKey();
+            eldest.remove();
+
+            if (dirty.containsKey(evicted)) {
+                inner.put(evicted, dirty.remove(evicted));
+            }
+        }
+    }
+
+    private V copy(V value) {
+        return value == null ? null
+            : serde.deserializer().deserialize(name(), serde.serializer().serialize(name(), value));
+    }
+
+    private static class ListIterator<V> implements KeyValueIterator<String, V> {
+
+        private final List<Map.Entry<String, V>> entries;
+        private int next;
+
+        private ListIterator(List<Map.Entry<String, V>> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < entries.size();
+        }
+
+        @Override
+        public KeyValue<String, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, V> entry = entries.get(next++);
+            return KeyValue.pair(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public String peekNextKey() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return entries.get(next).getKey();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class Builder<V> implements StoreBuilder<KeyValueStore<String, V>> {
+
+        private final StoreBuilder<KeyValueStore<String, V>> inner;
+        private final Serde<V> serde;
+        private final int maxEntries;
+
+        private Builder(StoreBuilder<KeyValueStore<String, V>> inner, Serde<V> serde, int maxEntries) {
+            this.inner = inner;
+            this.serde = serde;
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        public StoreBuilder<KeyValueStore<String, V>> withCachingEnabled() {
+            inner.withCachingEnabled();
+            return this;
+        }
+
+        @Override
+        public StoreBuilder<KeyValueStore<String, V>> withLoggingEnabled(Map<String, String> config) {
+            inner.withLoggingEnabled(config);
+            return this;
+        }
+
+        @Override
+        public StoreBuilder<KeyValueStore<String, V>> withLoggingDisabled() {
+            inner.withLoggingDisabled();
+            return this;
+        }
+
+        @Override
+        public KeyValueStore<String, V> build() {
+            return new ObjectCachingKeyValueStore<>(inner.build(), serde, maxEntries);
+        }
+
+        @Override
+        public Map<String, String> logConfig() {
+            return inner.logConfig();
+        }
+
+        @Override
+        public boolean loggingEnabled() {
+            return inner.loggingEnabled();
+        }
+
+        @Override
+        public String name() {
+            return inner.name();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.djar.football.stream;
+
+import java.util.Properties;
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+/**
+ * Producer settings for the event publishers. LOW_LATENCY sends every record as soon as possible (live matches),
+ * HIGH_THROUGHPUT waits a little to send larger compressed batches (bulk replays). Both wait for all the in-sync
+ * replicas, the events are the system of record and the transactional producers require it anyway.
+ */
+public enum ProducerProfile {
+
+    LOW_LATENCY(0, 16 * 1024, "none"),
+    HIGH_THROUGHPUT(20, 256 * 1024, "lz4");
+
+    private final int lingerMs;
+    private final int batchSize;
+    private final String compression;
+
+    ProducerProfile(int lingerMs, int batchSize, String compression) {
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+        this.compression = compression;
+    }
+
+    public Properties configure(Properties producerProps) {
+        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        producerProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        producerProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        producerProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        return producerProps;
+    }
+
+    @Override
+    public String toString() {
+        return name() + "(linger.ms=" + lingerMs + ", batch.size=" + batchSize + ", compression=" + compression
+            + ", acks=all)";
+    }
+}
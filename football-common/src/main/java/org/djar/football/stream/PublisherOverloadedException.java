@@ -0,0 +1,17 @@
+package org.djar.football.stream;
+
+/**
+ * Thrown when too many events are being published, the request should be retried later.
+ */
+public class PublisherOverloadedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PublisherOverloadedException(int inFlight, int maxInFlight) {
+        super("Too many events in flight: " + inFlight + ", the limit is " + maxInFlight);
+    }
+
+    public PublisherOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,39 @@
+package org.djar.football.stream;
+
+import java.util.Map;
+import org.apache.kafka.streams.state.RocksDBConfigSetter;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.Options;
+
+/**
+ * Configures the RocksDB stores by their {@link StoreBackend}, set by {@link KafkaStreamsStarter}:
+ * <ul>
+ * <li>ROCKSDB: a smaller block cache than the Kafka Streams default (50 MB per store in each task), holding the
+ * indexes and the bloom filters too, so the memory used by the store is bounded,</li>
+ * <li>MMAP: the files are read through the OS page cache (off the heap, shared by the tasks) instead of the block
+ * cache, and compacted by levels, cheaper to read than the default universal compaction.</li>
+ * </ul>
+ */
+public class RocksDBTuning implements RocksDBConfigSetter {
+
+    static final long BLOCK_CACHE_SIZE = 16 * 1024 * 1024L;
+    static final int BLOOM_FILTER_BITS_PER_KEY = 10;
+
+    @Override
+    public void setConfig(String storeName, Options options, Map<String, Object> configs) {
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+        tableConfig.setFilter(new BloomFilter(BLOOM_FILTER_BITS_PER_KEY));
+
+        if (StreamsUtils.storeBackend(storeName) == StoreBackend.MMAP) {
+            tableConfig.setNoBlockCache(true);
+            options.setAllowMmapReads(true);
+            options.setCompactionStyle(CompactionStyle.LEVEL);
+        } else {
+            tableConfig.setBlockCacheSize(BLOCK_CACHE_SIZE);
+            tableConfig.setCacheIndexAndFilterBlocks(true);
+        }
+        options.setTableFormatConfig(tableConfig);
+    }
+}
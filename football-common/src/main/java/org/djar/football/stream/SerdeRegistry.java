@@ -0,0 +1,127 @@
+package org.djar.football.stream;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.djar.football.model.event.Event;
+
+/**
+ * Hands out type-bound serdes that share a single, fully configured {@link ObjectMapper} per wire format.
+ * The serdes are stateless and thread-safe, so a single instance per type is enough for the whole service.
+ * <p>
+ * The format used for writing is selected per topic, everything not configured explicitly is written
+ * in the default format (JSON). Reading doesn't depend on the configuration, the format is recognized
+ * by the first byte of a record.
+ */
+public class SerdeRegistry {
+
+    private static final ObjectMapper MAPPER = createMapper(new JsonFactory());
+    private static final ObjectMapper SMILE_MAPPER = createMapper(new SmileFactory()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES));
+    // used for events published with the metadata in record headers
+    private static final ObjectMapper HEADLESS_MAPPER = MAPPER.copy().addMixIn(Event.class, MetadataInHeaders.class);
+    private static final ObjectMapper HEADLESS_SMILE_MAPPER = SMILE_MAPPER.copy()
+            .addMixIn(Event.class, MetadataInHeaders.class);
+
+    private static final Map<Class<?>, JsonPojoSerde<?>> SERDES = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, LazyEventSerde<?>> LAZY_SERDES = new ConcurrentHashMap<>();
+
+    private static final Map<String, WireFormat> FORMATS = new ConcurrentHashMap<>();
+    private static final Map<String, WireFormat> RESOLVED_FORMATS = new ConcurrentHashMap<>();
+    private static volatile WireFormat defaultFormat = WireFormat.JSON;
+
+    private SerdeRegistry() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> JsonPojoSerde<T> serde(Class<T> type) {
+        return (JsonPojoSerde<T>)SERDES.computeIfAbsent(type, JsonPojoSerde::new);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E extends Event> LazyEventSerde<E> lazySerde(Class<E> type) {
+        return (LazyEventSerde<E>)LAZY_SERDES.computeIfAbsent(type, key -> new LazyEventSerde<>(type));
+    }
+
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    public static ObjectMapper mapper(WireFormat format) {
+        return format == WireFormat.SMILE ? SMILE_MAPPER : MAPPER;
+    }
+
+    static ObjectMapper headlessMapper(WireFormat format) {
+        return format == WireFormat.SMILE ? HEADLESS_SMILE_MAPPER : HEADLESS_MAPPER;
+    }
+
+    public static void setDefaultWireFormat(WireFormat format) {
+        defaultFormat = format;
+        RESOLVED_FORMATS.clear();
+    }
+
+    /**
+     * @param topicOrStore a topic name or a state store name (applies to the store's changelog)
+     */
+    public static void setWireFormat(String topicOrStore, WireFormat format) {
+        FORMATS.put(topicOrStore, format);
+        RESOLVED_FORMATS.clear();
+    }
+
+    /**
+     * Replaces the formats set so far: all the topics and stores in the default format except the binary ones.
+     */
+    public static void configure(WireFormat defaultFormat, String... binaryTopicsOrStores) {
+        FORMATS.clear();
+        setDefaultWireFormat(defaultFormat);
+
+        for (String name : binaryTopicsOrStores) {
+            setWireFormat(name, WireFormat.SMILE);
+        }
+    }
+
+    public static WireFormat wireFormat(String topic) {
+        if (topic == null) {
+            return defaultFormat;
+        }
+        return RESOLVED_FORMATS.computeIfAbsent(topic, SerdeRegistry::resolveFormat);
+    }
+
+    private static WireFormat resolveFormat(String topic) {
+        WireFormat format = FORMATS.get(topic);
+
+        if (format != null) {
+            return format;
+        }
+        // state stores serialize values using the changelog topic name: <applicationId>-<store>-changelog
+        for (Map.Entry<String, WireFormat> entry : FORMATS.entrySet()) {
+            if (topic.endsWith("-" + entry.getKey() + "-changelog")) {
+                return entry.getValue();
+            }
+        }
+        return defaultFormat;
+    }
+
+    private static ObjectMapper createMapper(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory);
+        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        mapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        return mapper;
+    }
+
+    @JsonIgnoreProperties("metadata")
+    private abstract static class MetadataInHeaders {
+    }
+}
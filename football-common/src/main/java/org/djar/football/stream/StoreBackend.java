@@ -0,0 +1,70 @@
+package org.djar.football.stream;
+
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.state.KeyValueBytesStoreSupplier;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+
+/**
+ * The storage of a key-value store, selected per store by {@link StreamsUtils#setStoreBackends(String...)}:
+ * <ul>
+ * <li>IN_MEMORY: a map on the heap, for small hot stores (e.g. the team ranking), no JNI calls nor disk I/O,
+ * restored from the changelog topic on every start,</li>
+ * <li>ROCKSDB: RocksDB tuned for the updated aggregates (see {@link RocksDBTuning}), the default,</li>
+ * <li>MMAP: RocksDB with allow_mmap_reads, the table files are read through the OS page cache instead of the
+ * block cache, for large mostly read stores (e.g. the players). The data is still in RocksDB, not in a store of
+ * its own.</li>
+ * </ul>
+ * The stores of all the backends report the same metrics: the put, get, range etc. latencies and rates of the
+ * stream-football-state-metrics group, tagged by football-state-id (the store name). Kafka Streams records them at
+ * the DEBUG level only, which {@link KafkaStreamsStarter} sets by default.
+ */
+public enum StoreBackend {
+
+    IN_MEMORY {
+        @Override
+        KeyValueBytesStoreSupplier create(String name) {
+            return Stores.inMemoryKeyValueStore(name);
+        }
+    },
+    ROCKSDB {
+        @Override
+        KeyValueBytesStoreSupplier create(String name) {
+            return Stores.persistentKeyValueStore(name);
+        }
+    },
+    MMAP {
+        @Override
+        KeyValueBytesStoreSupplier create(String name) {
+            // configured by RocksDBTuning
+            return Stores.persistentKeyValueStore(name);
+        }
+    };
+
+    static final String METRICS_SCOPE = "football-state";
+
+    abstract KeyValueBytesStoreSupplier create(String name);
+
+    public KeyValueBytesStoreSupplier supplier(String name) {
+        KeyValueBytesStoreSupplier supplier = create(name);
+
+        // the metrics don't depend on the backend, so it can be changed without changing the dashboards
+        return new KeyValueBytesStoreSupplier() {
+
+            @Override
+            public String name() {
+                return supplier.name();
+            }
+
+            @Override
+            public KeyValueStore<Bytes, byte[]> get() {
+                return supplier.get();
+            }
+
+            @Override
+            public String metricsScope() {
+                return METRICS_SCOPE;
+            }
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package org.djar.football.stream;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.processor.StateRestoreListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs and keeps the restoration progress of the state stores: the records restored from the changelog topics
+ * and the bytes read by the restore consumers (bytes-consumed-total of the changelog topic).
+ */
+public class StoreRestoreListener implements StateRestoreListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoreRestoreListener.class);
+
+    private final Supplier<Map<MetricName, ? extends Metric>> metrics;
+    private final Map<String, Progress> stores = new ConcurrentHashMap<>();
+
+    /**
+     * @param metrics the metrics of the Kafka Streams instance, including its restore consumers
+     */
+    public StoreRestoreListener(Supplier<Map<MetricName, ? extends Metric>> metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onRestoreStart(TopicPartition partition, String storeName, long startingOffset,
+            long endingOffset) {
+        logger.info("Restoring {} from {}, offsets {}-{}", storeName, partition, startingOffset, endingOffset);
+        stores.computeIfAbsent(storeName, name -> new Progress())
+            .start(endingOffset - startingOffset, bytesConsumed(partition.topic()));
+    }
+
+    @Override
+    public void onBatchRestored(TopicPartition partition, String storeName, long batchEndOffset,
+            long numRestored) {
+        Progress progress = stores.get(storeName);
+        progress.batchRestored(numRestored);
+        logger.debug("Restored {} of {} records of {}", progress.getRestoredRecords(), progress.getTotalRecords(),
+            storeName);
+    }
+
+    @Override
+    public void onRestoreEnd(TopicPartition partition, String storeName, long totalRestored) {
+        Progress progress = stores.get(storeName);
+        progress.end(bytesConsumed(partition.topic()));
+
+        if (!progress.isRestoring()) {
+            logger.info("Restored {} records ({} bytes) of {} in {} ms", progress.getRestoredRecords(),
+                progress.getRestoredBytes(), storeName, progress.getRestoreTime());
+        }
+    }
+
+    public Map<String, Progress> getStores() {
+        return Collections.unmodifiableMap(stores);
+    }
+
+    public boolean isRestoring() {
+        return stores.values().stream().anyMatch(Progress::isRestoring);
+    }
+
+    // the consumers' topic tags have dots replaced with underscores
+    private long bytesConsumed(String topic) {
+        String topicTag = topic.replace('.', '_');
+        double bytes = 0;
+
+        for (Map.Entry<MetricName, ? extends Metric> entry : metrics.get().entrySet()) {
+            MetricName name = entry.getKey();
+            String clientId = name.tags().get("client-id");
+            String metricTopic = name.tags().get("topic");
+
+            if (name.name().equals("bytes-consumed-total") && clientId != null
+                    && clientId.endsWith("restore-consumer") && metricTopic != null
+                    && metricTopic.replace('.', '_').equals(topicTag)) {
+                Object value = entry.getValue().metricValue();
+                bytes += value instanceof Number ? ((Number)value).doubleValue() : 0;
+            }
+        }
+        return (long)bytes;
+    }
+
+    /**
+     * Restoration of all the partitions of a store.
+     */
+    public static class Progress {
+
+        private long totalRecords;
+        private long restoredRecords;
+        private long restoredBytes;
+        private long startBytes;
+        private long startTime;
+        private long restoreTime;
+        private int restoringPartitions;
+
+        private synchronized void start(long records, long bytesConsumed) {
+            if (restoringPartitions++ == 0) {
+                startBytes = bytesConsumed;
+                startTime = System.currentTimeMillis();
+            }
+            totalRecords += records;
+        }
+
+        private synchronized void batchRestored(long records) {
+            restoredRecords += records;
+        }
+
+        private synchronized void end(long bytesConsumed) {
+            if (--restoringPartitions == 0) {
+                restoredBytes += bytesConsumed - startBytes;
+                restoreTime += System.currentTimeMillis() - startTime;
+            }
+        }
+
+        public synchronized long getTotalRecords() {
+            return totalRecords;
+        }
+
+        public synchronized long getRestoredRecords() {
+            return restoredRecords;
+        }
+
+        public synchronized long getRestoredBytes() {
+            return restoredBytes;
+        }
+
+        public synchronized long getRestoreTime() {
+            return restoreTime;
+        }
+
+        public synchronized boolean isRestoring() {
+            return restoringPartitions > 0;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.djar.football.stream;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * CPU utilization of the Kafka Streams threads: the CPU time of a thread divided by the elapsed time since the
+ * previous sample. A thread close to 1 is CPU-bound; a thread far below 1 waits, for the records (see the
+ * poll-latency-avg of its stream-metrics), for RocksDB or for the commits (process-latency-avg and
+ * commit-latency-avg).
+ */
+public class StreamThreadUtilization {
+
+    private static final long DEFAULT_SAMPLE_INTERVAL_MS = 5000;
+
+    private final String threadPrefix;
+    private final long sampleInterval;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private Map<Long, Long> lastCpuTimes = new HashMap<>();
+    private long lastSample;
+    private Map<String, Double> utilization = Collections.emptyMap();
+
+    /**
+     * @param clientId the client id of the Kafka Streams instance, the prefix of its thread names
+     */
+    public StreamThreadUtilization(String clientId) {
+        this(clientId, DEFAULT_SAMPLE_INTERVAL_MS);
+    }
+
+    StreamThreadUtilization(String clientId, long sampleInterval) {
+        this.threadPrefix = clientId + "-StreamThread-";
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Returns the names of the live stream threads.
+     */
+    public List<String> getThreads() {
+        return streamThreads().stream().map(ThreadInfo::getThreadName).sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the utilization (0-1) of the thread, NaN until sampled twice. Sampled at most once per interval,
+     * so that all the threads are measured over the same time.
+     */
+    public synchronized double getUtilization(String thread) {
+        long now = System.nanoTime();
+
+        if (lastSample == 0 || now - lastSample >= sampleInterval * 1_000_000) {
+            sample(now);
+        }
+        return utilization.getOrDefault(thread, Double.NaN);
+    }
+
+    private void sample(long now) {
+        Map<Long, Long> cpuTimes = new HashMap<>();
+        Map<String, Double> result = new TreeMap<>();
+
+        for (ThreadInfo thread : streamThreads()) {
+            long cpuTime = threadBean.getThreadCpuTime(thread.getThreadId());
+
+            if (cpuTime < 0) {
+                // not supported or the thread has died
+                continue;
+            }
+            cpuTimes.put(thread.getThreadId(), cpuTime);
+            Long lastCpuTime = lastCpuTimes.get(thread.getThreadId());
+
+            if (lastCpuTime != null) {
+                result.put(thread.getThreadName(), utilization(cpuTime - lastCpuTime, now - lastSample));
+            }
+        }
+        lastCpuTimes = cpuTimes;
+        lastSample = now;
+        utilization = result;
+    }
+
+    static double utilization(long cpuTime, long elapsedTime) {
+        return elapsedTime > 0 ? Math.min(1, (double)cpuTime / elapsedTime) : Double.NaN;
+    }
+
+    private List<ThreadInfo> streamThreads() {
+        ThreadInfo[] threads = threadBean.getThreadInfo(threadBean.getAllThreadIds());
+        List<ThreadInfo> result = new ArrayList<>();
+
+        for (ThreadInfo thread : threads) {
+            // null if the thread has died meanwhile
+            if (thread != null && thread.getThreadName().startsWith(threadPrefix)) {
+                result.add(thread);
+            }
+        }
+        return result;
+    }
+}
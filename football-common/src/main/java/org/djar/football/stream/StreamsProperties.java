@@ -0,0 +1,252 @@
+package org.djar.football.stream;
+
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.Topology;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * The Kafka Streams settings shared by the services (kafka.*, kafkaTimeout, streamsStartupTimeout, streams.*,
+ * topics.* and wireFormat.*), bound by Spring Boot when declared as a bean. The defaults that differ between
+ * the services (e.g. the store backends) are set on the bean before the binding.
+ */
+@ConfigurationProperties
+public class StreamsProperties {
+
+    private final Kafka kafka = new Kafka();
+    private final Streams streams = new Streams();
+    private final Topics topics = new Topics();
+    private final WireFormats wireFormat = new WireFormats();
+
+    private long kafkaTimeout = 60000;
+    private long streamsStartupTimeout = 20000;
+
+    /**
+     * Configures {@link SerdeRegistry} and {@link StreamsUtils}, should be called before building the topology.
+     */
+    public void configure() {
+        SerdeRegistry.configure(wireFormat.getDefault(), wireFormat.getBinary());
+        StreamsUtils.setStoreBackends(streams.getStoreBackends());
+        StreamsUtils.setDeduplication(StreamsConfig.AT_LEAST_ONCE.equals(streams.getProcessingGuarantee()));
+        StreamsUtils.setObjectCacheSize(streams.getObjectCacheSize());
+    }
+
+    /**
+     * Creates a starter of the topology configured by these settings, not started yet.
+     */
+    public KafkaStreamsStarter starter(Topology topology, String applicationId) {
+        KafkaStreamsStarter starter = new KafkaStreamsStarter(kafka.getBootstrapAddress(), topology, applicationId);
+        starter.setKafkaTimeout(kafkaTimeout);
+        starter.setStreamsStartupTimeout(streamsStartupTimeout);
+        starter.setProcessingGuarantee(streams.getProcessingGuarantee());
+        starter.setCommitInterval(streams.getCommitInterval());
+        starter.setStateDir(streams.getStateDir());
+        starter.setCleanUp(streams.isCleanUp());
+        starter.setStreamThreads(streams.getThreads());
+        starter.setMetricsRecordingLevel(streams.getMetricsRecordingLevel());
+        starter.setTopicProvisioner(topicProvisioner());
+        return starter;
+    }
+
+    TopicProvisioner topicProvisioner() {
+        TopicProvisioner provisioner = new TopicProvisioner(topics.getPartitions(), topics.getReplicationFactor());
+        provisioner.setPartitions(topics.getPartitionsPerTopic());
+        provisioner.setEventRetention(topics.getEventRetention());
+        return provisioner;
+    }
+
+    public Kafka getKafka() {
+        return kafka;
+    }
+
+    public Streams getStreams() {
+        return streams;
+    }
+
+    public Topics getTopics() {
+        return topics;
+    }
+
+    public WireFormats getWireFormat() {
+        return wireFormat;
+    }
+
+    public long getKafkaTimeout() {
+        return kafkaTimeout;
+    }
+
+    public void setKafkaTimeout(long kafkaTimeout) {
+        this.kafkaTimeout = kafkaTimeout;
+    }
+
+    public long getStreamsStartupTimeout() {
+        return streamsStartupTimeout;
+    }
+
+    public void setStreamsStartupTimeout(long streamsStartupTimeout) {
+        this.streamsStartupTimeout = streamsStartupTimeout;
+    }
+
+    public static class Kafka {
+
+        private String bootstrapAddress;
+
+        public String getBootstrapAddress() {
+            return bootstrapAddress;
+        }
+
+        public void setBootstrapAddress(String bootstrapAddress) {
+            this.bootstrapAddress = bootstrapAddress;
+        }
+    }
+
+    public static class Streams {
+
+        // exactly_once or at_least_once, the processors skip the events already applied in at_least_once mode
+        private String processingGuarantee = StreamsConfig.EXACTLY_ONCE;
+        // 0: 1 ms for exactly_once, the Kafka Streams default for at_least_once
+        private long commitInterval;
+        private String stateDir;
+        // aggregates kept as objects by each stream task, so the updates don't decode and encode them, 0 to disable
+        // (the default)
+        private int objectCacheSize;
+        // store:backend (IN_MEMORY, ROCKSDB or MMAP), the other stores are in RocksDB
+        private String[] storeBackends = {};
+        // deletes the local state on startup, it is restored from the changelog topics then
+        private boolean cleanUp;
+        // 0: as many as the processors and the stream tasks allow, within this instance (each one runs all the tasks)
+        private int threads;
+        // DEBUG records the state store metrics too, INFO the thread metrics only
+        private String metricsRecordingLevel = Sensor.RecordingLevel.DEBUG.name;
+
+        public String getProcessingGuarantee() {
+            return processingGuarantee;
+        }
+
+        public void setProcessingGuarantee(String processingGuarantee) {
+            this.processingGuarantee = processingGuarantee;
+        }
+
+        public long getCommitInterval() {
+            return commitInterval;
+        }
+
+        public void setCommitInterval(long commitInterval) {
+            this.commitInterval = commitInterval;
+        }
+
+        public String getStateDir() {
+            return stateDir;
+        }
+
+        public void setStateDir(String stateDir) {
+            this.stateDir = stateDir;
+        }
+
+        public int getObjectCacheSize() {
+            return objectCacheSize;
+        }
+
+        public void setObjectCacheSize(int objectCacheSize) {
+            this.objectCacheSize = objectCacheSize;
+        }
+
+        public String[] getStoreBackends() {
+            return storeBackends;
+        }
+
+        public void setStoreBackends(String... storeBackends) {
+            this.storeBackends = storeBackends;
+        }
+
+        public boolean isCleanUp() {
+            return cleanUp;
+        }
+
+        public void setCleanUp(boolean cleanUp) {
+            this.cleanUp = cleanUp;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public String getMetricsRecordingLevel() {
+            return metricsRecordingLevel;
+        }
+
+        public void setMetricsRecordingLevel(String metricsRecordingLevel) {
+            this.metricsRecordingLevel = metricsRecordingLevel;
+        }
+    }
+
+    public static class Topics {
+
+        // partitions of the event and view topics created by the service if missing
+        private int partitions = 1;
+        // topic:partitions overrides, e.g. fb-view.top-players:4, all the event topics must have the same number
+        private String[] partitionsPerTopic = {};
+        private short replicationFactor = 1;
+        // ms, -1: the events are kept forever, the snapshots and views are rebuilt from them
+        private long eventRetention = -1;
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public void setPartitions(int partitions) {
+            this.partitions = partitions;
+        }
+
+        public String[] getPartitionsPerTopic() {
+            return partitionsPerTopic;
+        }
+
+        public void setPartitionsPerTopic(String... partitionsPerTopic) {
+            this.partitionsPerTopic = partitionsPerTopic;
+        }
+
+        public short getReplicationFactor() {
+            return replicationFactor;
+        }
+
+        public void setReplicationFactor(short replicationFactor) {
+            this.replicationFactor = replicationFactor;
+        }
+
+        public long getEventRetention() {
+            return eventRetention;
+        }
+
+        public void setEventRetention(long eventRetention) {
+            this.eventRetention = eventRetention;
+        }
+    }
+
+    public static class WireFormats {
+
+        private WireFormat defaultFormat = WireFormat.JSON;
+        // the topics and stores encoded in the binary format
+        private String[] binary = {};
+
+        public WireFormat getDefault() {
+            return defaultFormat;
+        }
+
+        public void setDefault(WireFormat defaultFormat) {
+            this.defaultFormat = defaultFormat;
+        }
+
+        public String[] getBinary() {
+            return binary;
+        }
+
+        public void setBinary(String... binary) {
+            this.binary = binary;
+        }
+    }
+}
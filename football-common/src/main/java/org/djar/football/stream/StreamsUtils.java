@@ -1,18 +1,35 @@
 package org.djar.football.stream;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.TopologyDescription;
+import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.Materialized;
 import org.apache.kafka.streams.processor.AbstractProcessor;
 import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.state.KeyValueBytesStoreSupplier;
+import org.apache.kafka.streams.state.KeyValueIterator;
 import org.apache.kafka.streams.state.KeyValueStore;
 import org.apache.kafka.streams.state.StoreBuilder;
 import org.apache.kafka.streams.state.Stores;
+import org.djar.football.model.Deduplicated;
 import org.djar.football.model.event.Event;
+import org.djar.football.repo.CompositeKey;
+import org.djar.football.repo.IdDictionary;
 import org.djar.football.util.Topics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,13 +38,67 @@ public class StreamsUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(StreamsUtils.class);
 
+    private static volatile boolean deduplication;
+    private static volatile int objectCacheSize;
+    private static final Map<String, StoreBackend> storeBackends = new ConcurrentHashMap<>();
+
     private StreamsUtils() {
     }
 
+    /**
+     * Sets whether the processors added by {@link #addProcessor} skip the events already applied to the
+     * {@link Deduplicated} aggregates, required by at_least_once processing. Should be called before building
+     * the topology.
+     */
+    public static void setDeduplication(boolean enabled) {
+        deduplication = enabled;
+    }
+
+    public static boolean isDeduplication() {
+        return deduplication;
+    }
+
+    /**
+     * Sets how many aggregates of each store added by {@link #addStore} are kept as objects by every stream task
+     * (see {@link ObjectCachingKeyValueStore}), 0 (the default) to disable the cache. Should be called before
+     * building the topology.
+     */
+    public static void setObjectCacheSize(int entries) {
+        objectCacheSize = entries;
+    }
+
+    /**
+     * Sets the backends of the stores given as <code>store:backend</code>, e.g. <code>team_ranking_store:IN_MEMORY
+     * </code>, the other stores are {@link StoreBackend#ROCKSDB}. Applies to the stores added by {@link #addStore},
+     * {@link #addIndex} and {@link #materialized}, should be called before building the topology.
+     */
+    public static void setStoreBackends(String... stores) {
+        storeBackends.clear();
+
+        for (String store : stores) {
+            int separator = store.lastIndexOf(':');
+
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected store:backend, found: " + store);
+            }
+            storeBackends.put(store.substring(0, separator).trim(),
+                StoreBackend.valueOf(store.substring(separator + 1).trim()));
+        }
+    }
+
+    public static StoreBackend storeBackend(String storeName) {
+        return storeBackends.getOrDefault(storeName, StoreBackend.ROCKSDB);
+    }
+
     public static <V> Materialized<String, V, KeyValueStore<Bytes, byte[]>> materialized(String storeName,
             Serde<V> serde) {
-        return Materialized.<String, V, KeyValueStore<Bytes, byte[]>>as(storeName)
-            .withKeySerde(Serdes.String()).withValueSerde(serde);
+        return materialized(storeName, Serdes.String(), serde);
+    }
+
+    public static <V> Materialized<String, V, KeyValueStore<Bytes, byte[]>> materialized(String storeName,
+            Serde<String> keySerde, Serde<V> serde) {
+        return Materialized.<String, V>as(supplier(storeName))
+            .withKeySerde(keySerde).withValueSerde(serde);
     }
 
     public static String storeName(Class stored) {
@@ -38,17 +109,21 @@ public class StreamsUtils {
             EventProcessor<E, D> proc, String store) {
         String topic = Topics.eventTopicName(eventType);
         topology.addSource(eventType.getSimpleName() + "Source", Serdes.String().deserializer(),
-                new JsonPojoSerde<E>(eventType), topic)
+                SerdeRegistry.serde(eventType), topic)
                 .addProcessor(eventType.getSimpleName() + "Process",
-                    () -> new ProcessorWrapper<E, D>(proc, topic, store),
+                    () -> new ProcessorWrapper<E, D>(proc, topic, store, deduplication),
                 eventType.getSimpleName() + "Source");
     }
 
     public static <D, E extends Event> void addStore(Topology topology, Class<D> domainType, String store,
             Class<E>... eventTypes) {
-        StoreBuilder<KeyValueStore<String, D>> matchStoreBuilder = Stores.keyValueStoreBuilder(
-                Stores.persistentKeyValueStore(store), Serdes.String(), new JsonPojoSerde<D>(domainType))
-                .withLoggingDisabled();
+        Serde<D> serde = SerdeRegistry.serde(domainType);
+        StoreBuilder<KeyValueStore<String, D>> matchStoreBuilder = logging(Stores.keyValueStoreBuilder(
+                supplier(store), Serdes.String(), serde));
+
+        if (objectCacheSize > 0) {
+            matchStoreBuilder = ObjectCachingKeyValueStore.storeBuilder(matchStoreBuilder, serde, objectCacheSize);
+        }
 
         String[] processorNames = Stream.of(eventTypes)
             .map(event -> event.getSimpleName() + "Process")
@@ -57,6 +132,60 @@ public class StreamsUtils {
         topology.addStateStore(matchStoreBuilder, processorNames);
     }
 
+    /**
+     * Passes the records once the numbers of their keys are assigned by the dictionary (see {@link IdAssignment}),
+     * so the keys can be grouped by {@link DictionaryKeySerde}. The stream is returned as it is without a dictionary.
+     */
+    public static <V> KStream<String, V> assignIds(StreamsBuilder builder, KStream<String, V> stream, String store,
+            IdDictionary dictionary, Serde<V> serde) {
+        if (dictionary == null) {
+            return stream;
+        }
+        builder.addStateStore(logging(IdAssignment.storeBuilder(store, serde)));
+        return stream.transform(() -> new IdAssignment.Transformer<V>(dictionary, store), store);
+    }
+
+    /**
+     * Adds an index store mapping the composite keys of events of the given type (already added by
+     * {@link #addProcessor}) to the aggregate ids, so that the aggregates can be found by range queries.
+     */
+    public static <E extends Event> void addIndex(Topology topology, Class<E> eventType, String store,
+            Function<E, CompositeKey> indexKey) {
+        String processorName = eventType.getSimpleName() + "Index";
+        topology.addProcessor(processorName, () -> new IndexProcessor<>(indexKey, store),
+                eventType.getSimpleName() + "Source");
+        topology.addStateStore(logging(Stores.keyValueStoreBuilder(supplier(store),
+                new CompositeKeySerde(), Serdes.String())), processorName);
+    }
+
+    /**
+     * Returns the topics read by the sub-topology, including the internal (repartition) topics named without the
+     * application id prefix.
+     */
+    public static Set<String> sourceTopics(TopologyDescription.Subtopology subtopology) {
+        Set<String> topics = new HashSet<>();
+
+        for (TopologyDescription.Node node : subtopology.nodes()) {
+            if (node instanceof TopologyDescription.Source) {
+                // formatted as a list: [topic1, topic2]
+                for (String topic : ((TopologyDescription.Source)node).topics().split(",")) {
+                    topics.add(topic.replaceAll("[\\[\\] ]", ""));
+                }
+            }
+        }
+        return topics;
+    }
+
+    private static KeyValueBytesStoreSupplier supplier(String storeName) {
+        return storeBackend(storeName).supplier(storeName);
+    }
+
+    // the committed offsets of the application id don't let the events be processed again, so the stores are
+    // restored from their changelog topics (compacted by default)
+    private static <S extends StateStore> StoreBuilder<S> logging(StoreBuilder<S> builder) {
+        return builder.withLoggingEnabled(Collections.emptyMap());
+    }
+
     @FunctionalInterface
     public interface EventProcessor<E extends Event, D> {
 
@@ -68,29 +197,158 @@ public class StreamsUtils {
         private final String storeName;
         private final String topic;
         private final EventProcessor<E, D> processor;
+        private final boolean deduplication;
 
         private KeyValueStore<String, D> store;
 
-        private ProcessorWrapper(EventProcessor<E, D> processor, String topic, String storeName) {
+        private ProcessorWrapper(EventProcessor<E, D> processor, String topic, String storeName,
+                boolean deduplication) {
             this.processor = processor;
             this.topic = topic;
             this.storeName = storeName;
+            this.deduplication = deduplication;
         }
 
         @Override
         public void init(ProcessorContext context) {
+            super.init(context);
             store = (KeyValueStore<String, D>)context.getStateStore(storeName);
         }
 
         @Override
         public void process(String eventId, E event) {
             logger.debug("Event received from topic {}: {}->{}", topic, eventId, event);
-            processor.process(eventId, event, store);
+            String id = deduplication && event.getMetadata() != null ? event.getMetadata().getEventId() : null;
+
+            // the aggregates cached by the store are changed in place
+            synchronized (store) {
+                if (id == null) {
+                    processor.process(eventId, event, store);
+                    return;
+                }
+                D aggregate = store.get(event.getAggId());
+
+                if (aggregate instanceof Deduplicated && ((Deduplicated)aggregate).isApplied(id)) {
+                    logger.debug("Event already applied: {}", id);
+                    return;
+                }
+                processor.process(eventId, event, new AppliedEventStore<>(store, id));
+            }
+        }
+    }
+
+    /**
+     * Marks the event applied to the aggregates put by the processor, so the id is written with the aggregate.
+     */
+    private static class AppliedEventStore<D> implements KeyValueStore<String, D> {
+
+        private final KeyValueStore<String, D> store;
+        private final String eventId;
+
+        private AppliedEventStore(KeyValueStore<String, D> store, String eventId) {
+            this.store = store;
+            this.eventId = eventId;
+        }
+
+        private D applied(D value) {
+            if (value instanceof Deduplicated) {
+                ((Deduplicated)value).markApplied(eventId);
+            }
+            return value;
+        }
+
+        @Override
+        public void put(String key, D value) {
+            store.put(key, applied(value));
+        }
+
+        @Override
+        public D putIfAbsent(String key, D value) {
+            return store.putIfAbsent(key, applied(value));
+        }
+
+        @Override
+        public void putAll(List<KeyValue<String, D>> entries) {
+            entries.forEach(entry -> applied(entry.value));
+            store.putAll(entries);
+        }
+
+        @Override
+        public D delete(String key) {
+            return store.delete(key);
+        }
+
+        @Override
+        public D get(String key) {
+            return store.get(key);
+        }
+
+        @Override
+        public KeyValueIterator<String, D> range(String from, String to) {
+            return store.range(from, to);
+        }
+
+        @Override
+        public KeyValueIterator<String, D> all() {
+            return store.all();
+        }
+
+        @Override
+        public long approximateNumEntries() {
+            return store.approximateNumEntries();
+        }
+
+        @Override
+        public String name() {
+            return store.name();
+        }
+
+        @Override
+        public void init(ProcessorContext context, StateStore root) {
+            throw new UnsupportedOperationException("Initialized by the wrapped store");
+        }
+
+        @Override
+        public void flush() {
+            store.flush();
         }
 
         @Override
         public void close() {
             store.close();
         }
+
+        @Override
+        public boolean persistent() {
+            return store.persistent();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return store.isOpen();
+        }
+    }
+
+    private static class IndexProcessor<E extends Event> extends AbstractProcessor<String, E> {
+
+        private final Function<E, CompositeKey> indexKey;
+        private final String storeName;
+
+        private KeyValueStore<CompositeKey, String> store;
+
+        private IndexProcessor(Function<E, CompositeKey> indexKey, String storeName) {
+            this.indexKey = indexKey;
+            this.storeName = storeName;
+        }
+
+        @Override
+        public void init(ProcessorContext context) {
+            store = (KeyValueStore<CompositeKey, String>)context.getStateStore(storeName);
+        }
+
+        @Override
+        public void process(String eventId, E event) {
+            store.put(indexKey.apply(event), event.getAggId());
+        }
     }
 }
@@ -0,0 +1,58 @@
+package org.djar.football.stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import java.io.IOException;
+
+/**
+ * Output of the serializers running on a thread: the buffer and the JSON generator writing into it are reused for
+ * all the records, so the resulting array is the only allocation per record. Smile generators are created per
+ * record, because they refer to the names and values written before (shared strings).
+ */
+final class ThreadOutput {
+
+    private static final ThreadLocal<ThreadOutput> OUTPUT = ThreadLocal.withInitial(ThreadOutput::new);
+
+    private final ByteArrayBuilder buffer = new ByteArrayBuilder();
+    private JsonGenerator jsonGenerator;
+
+    private ThreadOutput() {
+    }
+
+    static ThreadOutput get() {
+        return OUTPUT.get();
+    }
+
+    JsonGenerator generator(WireFormat format) throws IOException {
+        if (format == WireFormat.SMILE) {
+            buffer.write(WireFormat.SMILE_MARKER);
+            return SerdeRegistry.mapper(WireFormat.SMILE).getFactory().createGenerator(buffer);
+        }
+        if (jsonGenerator == null) {
+            jsonGenerator = SerdeRegistry.mapper(WireFormat.JSON).getFactory().createGenerator(buffer);
+            // every record is a separate document
+            jsonGenerator.setRootValueSeparator(null);
+        }
+        return jsonGenerator;
+    }
+
+    byte[] toByteArray(JsonGenerator generator) throws IOException {
+        if (generator == jsonGenerator) {
+            generator.flush();
+        } else {
+            generator.close();
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Prepares the output for the next record. The generator is dropped if writing failed, it may be left in the
+     * middle of a document.
+     */
+    void reset(boolean failed) {
+        if (failed) {
+            jsonGenerator = null;
+        }
+        buffer.reset();
+    }
+}
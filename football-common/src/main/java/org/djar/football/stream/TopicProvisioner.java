@@ -0,0 +1,168 @@
+package org.djar.football.stream;
+
+import static org.djar.football.util.Topics.EVENT_TOPIC_PREFIX;
+import static org.djar.football.util.Topics.VIEW_TOPIC_PREFIX;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the football topics used by a service if missing, so every service can start first:
+ * <ul>
+ * <li>the event topics, kept for {@link #setEventRetention(long)} (forever by default), the domain snapshots and
+ * the views are rebuilt from them,</li>
+ * <li>the view topics, compacted, only the latest view of each key is needed,</li>
+ * <li>the topics configured explicitly ({@link #setPartitions(String, int)}, {@link #setCompacted(String)}).</li>
+ * </ul>
+ * The other topics (e.g. of Kafka Connect) are created by their producers. The existing topics are validated, the
+ * differences are logged only: the partitions can't be removed and added partitions would break the order of the
+ * events of an aggregate.
+ */
+public class TopicProvisioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopicProvisioner.class);
+
+    private final int partitions;
+    private final short replicationFactor;
+    private final Map<String, Integer> topicPartitions = new HashMap<>();
+    private final Set<String> compacted = new HashSet<>();
+
+    private long eventRetention = -1;
+
+    public TopicProvisioner(int partitions, short replicationFactor) {
+        this.partitions = partitions;
+        this.replicationFactor = replicationFactor;
+    }
+
+    /**
+     * Sets the retention of the event topics in ms, -1 (the default) to keep the events forever.
+     */
+    public void setEventRetention(long eventRetention) {
+        this.eventRetention = eventRetention;
+    }
+
+    public void setPartitions(String topic, int partitions) {
+        topicPartitions.put(topic, partitions);
+    }
+
+    /**
+     * Sets the partitions of the topics given as <code>topic:partitions</code>, e.g.
+     * <code>fb-view.top-players:4</code>. All the event topics must have the same number of partitions.
+     */
+    public void setPartitions(String... topics) {
+        for (String topic : topics) {
+            int separator = topic.lastIndexOf(':');
+
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected topic:partitions, found: " + topic);
+            }
+            setPartitions(topic.substring(0, separator).trim(), Integer.parseInt(topic.substring(separator + 1)));
+        }
+    }
+
+    public void setCompacted(String topic) {
+        compacted.add(topic);
+    }
+
+    public boolean isProvisioned(String topic) {
+        return topic.startsWith(EVENT_TOPIC_PREFIX) || topic.startsWith(VIEW_TOPIC_PREFIX)
+            || topicPartitions.containsKey(topic) || compacted.contains(topic);
+    }
+
+    NewTopic newTopic(String topic) {
+        return new NewTopic(topic, topicPartitions.getOrDefault(topic, partitions), replicationFactor)
+            .configs(configs(topic));
+    }
+
+    Map<String, String> configs(String topic) {
+        Map<String, String> configs = new HashMap<>();
+
+        if (topic.startsWith(VIEW_TOPIC_PREFIX) || compacted.contains(topic)) {
+            configs.put(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT);
+        } else if (topic.startsWith(EVENT_TOPIC_PREFIX)) {
+            configs.put(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(eventRetention));
+        }
+        return configs;
+    }
+
+    /**
+     * Creates the missing topics provisioned by the services and validates the existing ones.
+     *
+     * @param topics the topics used by the service
+     * @param existingTopics all the existing topics
+     */
+    public void provision(AdminClient client, Collection<String> topics, Set<String> existingTopics)
+            throws ExecutionException, InterruptedException {
+        Set<String> provisioned = topics.stream().filter(this::isProvisioned).collect(Collectors.toSet());
+        Set<String> missing = new TreeSet<>(provisioned);
+        missing.removeAll(existingTopics);
+
+        if (!missing.isEmpty()) {
+            create(client, missing);
+        }
+        provisioned.removeAll(missing);
+
+        if (!provisioned.isEmpty()) {
+            validate(client, provisioned);
+        }
+    }
+
+    private void create(AdminClient client, Set<String> topics) throws ExecutionException, InterruptedException {
+        for (Map.Entry<String, KafkaFuture<Void>> result : client.createTopics(
+                topics.stream().map(this::newTopic).collect(Collectors.toList())).values().entrySet()) {
+            try {
+                result.getValue().get();
+                logger.info("Created topic {}", newTopic(result.getKey()));
+            } catch (ExecutionException e) {
+                // created by another service meanwhile
+                if (!(e.getCause() instanceof TopicExistsException)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void validate(AdminClient client, Set<String> topics) throws ExecutionException, InterruptedException {
+        Map<String, TopicDescription> descriptions = client.describeTopics(topics).all().get();
+        Map<ConfigResource, Config> configs = client.describeConfigs(topics.stream()
+            .map(topic -> new ConfigResource(ConfigResource.Type.TOPIC, topic)).collect(Collectors.toList()))
+            .all().get();
+
+        for (String topic : topics) {
+            int expectedPartitions = topicPartitions.getOrDefault(topic, partitions);
+            int actualPartitions = descriptions.get(topic).partitions().size();
+
+            if (actualPartitions != expectedPartitions) {
+                logger.warn("Topic {} has {} partitions, configured: {}", topic, actualPartitions,
+                    expectedPartitions);
+            }
+            Config config = configs.get(new ConfigResource(ConfigResource.Type.TOPIC, topic));
+
+            for (Map.Entry<String, String> expected : configs(topic).entrySet()) {
+                ConfigEntry actual = config.get(expected.getKey());
+
+                if (actual == null || !expected.getValue().equals(actual.value())) {
+                    logger.warn("Topic {} has {}={}, configured: {}", topic, expected.getKey(),
+                        actual != null ? actual.value() : null, expected.getValue());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.djar.football.stream;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoding of the serialized events and views. Binary records start with a format byte that never begins
+ * a JSON document, so both formats can be read from the same topic during a rolling upgrade.
+ */
+public enum WireFormat {
+
+    // plain JSON without any prefix, compatible with the records written so far
+    JSON,
+    // Jackson Smile (binary JSON) preceded by SMILE_MARKER
+    SMILE;
+
+    static final byte SMILE_MARKER = 1;
+
+    private static final int PREVIEW_LENGTH = 256;
+
+    public static WireFormat of(byte[] data) {
+        return data.length > 0 && data[0] == SMILE_MARKER ? SMILE : JSON;
+    }
+
+    /**
+     * Returns the beginning of a record for error messages, without copying the whole (possibly large) record.
+     */
+    static String preview(byte[] data) {
+        if (of(data) == SMILE) {
+            return "<" + data.length + " bytes of Smile>";
+        }
+        if (data.length <= PREVIEW_LENGTH) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        return new String(data, 0, PREVIEW_LENGTH, StandardCharsets.UTF_8) + "... (" + data.length + " bytes)";
+    }
+}
@@ -1,9 +1,5 @@
 package org.djar.football.test;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JSR310Module;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.net.URISyntaxException;
@@ -30,7 +26,7 @@ import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
 import org.apache.kafka.streams.test.ConsumerRecordFactory;
 import org.djar.football.model.event.Event;
 import org.djar.football.model.view.PlayerGoals;
-import org.djar.football.stream.JsonPojoSerde;
+import org.djar.football.stream.SerdeRegistry;
 import org.djar.football.util.Topics;
 import org.springframework.util.FileSystemUtils;
 
@@ -66,13 +62,25 @@ public class StreamsTester {
         send(load(sourceFile, eventType));
     }
 
+    /**
+     * Sends the events with the given record timestamp, e.g. to send them again as after a failure.
+     */
+    public void sendEvents(long timestamp, Event... events) {
+        ConsumerRecordFactory<String, Object> factory = new ConsumerRecordFactory<>(
+                new StringSerializer(), SerdeRegistry.serde(Object.class), timestamp);
+
+        for (Event event : events) {
+            testDriver.pipeInput(factory.create(Topics.eventTopicName(event.getClass()), event.getAggId(), event));
+        }
+    }
+
     public <T> void send(URL sourceFile, Class<T> messageType, String topic, Function<T, String> key) {
         send(load(sourceFile, messageType), topic, key);
     }
 
     private void send(Event[] events) {
         ConsumerRecordFactory<String, Object> factory = new ConsumerRecordFactory<>(
-                new StringSerializer(), new JsonPojoSerde<>());
+                new StringSerializer(), SerdeRegistry.serde(Object.class));
 
         for (Event event : events) {
             String topic = Topics.eventTopicName(event.getClass());
@@ -83,7 +91,7 @@ public class StreamsTester {
 
     private <T> void send(T[] messages, String topic, Function<T, String> key) {
         ConsumerRecordFactory<String, Object> factory = new ConsumerRecordFactory<>(
-                new StringSerializer(), new JsonPojoSerde<>());
+                new StringSerializer(), SerdeRegistry.serde(Object.class));
 
         for (T message : messages) {
             var record = factory.create(topic, key.apply(message), message);
@@ -140,16 +148,10 @@ public class StreamsTester {
     private <T> T[] load(URL resource, Class<T> type) {
         Objects.requireNonNull(resource, "Null resource");
 
-        ObjectMapper mapper = new ObjectMapper();
-        // noinspection deprecation
-        mapper.registerModule(new JSR310Module());
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
-
         var arrayType = (Class<T[]>) Array.newInstance(type, 0).getClass();
 
         try {
-            return mapper.readValue(resource.toURI().toURL(), arrayType);
+            return SerdeRegistry.mapper().readValue(resource.toURI().toURL(), arrayType);
         } catch (IOException | URISyntaxException e) {
             throw new RuntimeException(e);
         }
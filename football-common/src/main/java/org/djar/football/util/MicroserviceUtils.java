@@ -1,16 +1,41 @@
 package org.djar.football.util;
 
-import org.springframework.boot.system.ApplicationPid;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import org.springframework.util.ClassUtils;
 
 public class MicroserviceUtils {
 
+    public static final String INSTANCE_ID_ENV = "FB_INSTANCE_ID";
+    public static final String INSTANCE_ID_PROPERTY = "fb.instanceId";
+
     private MicroserviceUtils() {
     }
 
+    /**
+     * Returns the service name followed by the instance id. The id is the same after a restart, so the instance
+     * resumes its consumer group and local state instead of processing the whole history again.
+     */
     public static String applicationId(Class mainClass) {
-        // a makeshift: it should be a microservice's instance identifier like IP or Kubernetes POD name
         // remove possible suffix $$EnhancerBySpringCGLIB from class name
-        return ClassUtils.getUserClass(mainClass).getSimpleName() + new ApplicationPid();
+        return ClassUtils.getUserClass(mainClass).getSimpleName() + "-" + instanceId();
+    }
+
+    /**
+     * Returns the instance identifier set in FB_INSTANCE_ID or -Dfb.instanceId (like a Kubernetes pod name),
+     * the host name by default.
+     */
+    public static String instanceId() {
+        String id = System.getProperty(INSTANCE_ID_PROPERTY, System.getenv(INSTANCE_ID_ENV));
+
+        if (id == null || id.isEmpty()) {
+            try {
+                id = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException("Unable to resolve the host name, set " + INSTANCE_ID_ENV, e);
+            }
+        }
+        // the characters allowed in application.id
+        return id.replaceAll("[^a-zA-Z0-9._-]", "_");
     }
 }
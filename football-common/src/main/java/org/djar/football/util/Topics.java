@@ -5,6 +5,8 @@ import org.djar.football.model.event.Event;
 public class Topics {
 
     public static final String TOPIC_NAME_PREFIX = "fb-";
+    public static final String EVENT_TOPIC_PREFIX = TOPIC_NAME_PREFIX + "event.";
+    public static final String VIEW_TOPIC_PREFIX = TOPIC_NAME_PREFIX + "view.";
 
     private Topics() {
     }
@@ -0,0 +1,68 @@
+package org.djar.football.repo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.kafka.common.utils.Bytes;
+import org.djar.football.stream.CompositeKeySerde;
+import org.junit.jupiter.api.Test;
+
+public class CompositeKeyTest {
+
+    private final CompositeKeySerde serde = new CompositeKeySerde();
+
+    @Test
+    public void roundTrip() {
+        CompositeKey key = CompositeKey.of("Championship 2017/2018", -5L, "a\u0000b", 42);
+        CompositeKey read = serde.deserialize("topic", serde.serialize("topic", key));
+
+        assertThat(read).isEqualTo(key);
+        assertThat(read.components()).containsExactly("Championship 2017/2018", -5L, "a\u0000b", 42L);
+    }
+
+    @Test
+    public void byteOrderFollowsComponents() {
+        List<CompositeKey> sorted = List.of(
+            CompositeKey.of("2017"),
+            CompositeKey.of("2017", "Burton Albion"),
+            CompositeKey.of("2017", Long.MIN_VALUE),
+            CompositeKey.of("2017", -1L),
+            CompositeKey.of("2017", 0L),
+            CompositeKey.of("2017", 1L, "Barnsley"),
+            CompositeKey.of("2017", 1L, "Millwall"),
+            CompositeKey.of("2017", Long.MAX_VALUE),
+            CompositeKey.of("2017\u0000"),
+            CompositeKey.of("2017a"),
+            CompositeKey.of("2018"));
+
+        for (int i = 1; i < sorted.size(); i++) {
+            CompositeKey previous = sorted.get(i - 1);
+            CompositeKey next = sorted.get(i);
+            // the same order as the stores use
+            assertThat(Bytes.wrap(previous.bytes()).compareTo(Bytes.wrap(next.bytes())))
+                .as(previous + " < " + next).isNegative();
+            assertThat(previous.compareTo(next)).isNegative();
+        }
+    }
+
+    @Test
+    public void prefixEndBoundsExtendedKeys() {
+        CompositeKey prefix = CompositeKey.of("2017", "Sunderland");
+        List<CompositeKey> inRange = new ArrayList<>();
+
+        for (CompositeKey key : List.of(CompositeKey.of("2017", "Sunderland"),
+                CompositeKey.of("2017", "Sunderland", "Lewis Grabban"),
+                CompositeKey.of("2017", "Sunderland", Long.MAX_VALUE),
+                CompositeKey.of("2017", "Sunderland\u0000"),
+                CompositeKey.of("2017", "Sunderland A"),
+                CompositeKey.of("2017", "Sunderlan"))) {
+            if (key.compareTo(prefix) >= 0 && key.compareTo(prefix.prefixEnd()) <= 0) {
+                inRange.add(key);
+            }
+        }
+        assertThat(inRange).containsExactly(CompositeKey.of("2017", "Sunderland"),
+            CompositeKey.of("2017", "Sunderland", "Lewis Grabban"),
+            CompositeKey.of("2017", "Sunderland", Long.MAX_VALUE));
+    }
+}
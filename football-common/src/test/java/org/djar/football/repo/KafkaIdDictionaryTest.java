@@ -0,0 +1,135 @@
+package org.djar.football.repo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.IntegerDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.ConsumerRecordFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class KafkaIdDictionaryTest {
+
+    private static final TopicPartition IDS_PARTITION = new TopicPartition(KafkaIdDictionary.IDS_TOPIC, 0);
+
+    private final MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(),
+        new StringSerializer());
+    private final MockConsumer<String, Integer> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+
+    private KafkaIdDictionary dictionary;
+
+    @AfterEach
+    public void tearDown() {
+        if (dictionary != null) {
+            dictionary.close();
+        }
+    }
+
+    @Test
+    public void assignedNumbersLoadedOnStart() throws Exception {
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(assigned(0, "Sunderland", 0));
+            consumer.addRecord(assigned(1, "Derby County", 1));
+        });
+        start(2, 5000);
+        assertThat(dictionary.whenLoaded().get(5, TimeUnit.SECONDS)).isSameAs(dictionary);
+
+        assertThat(dictionary.find("Sunderland")).isEqualTo(0);
+        assertThat(dictionary.find("Derby County")).isEqualTo(1);
+        assertThat(dictionary.value(1)).isEqualTo("Derby County");
+
+        dictionary.request("Derby County");
+        assertThat(producer.history()).isEmpty();
+    }
+
+    @Test
+    public void loadingFailsAfterTimeout() {
+        start(2, 100);
+
+        assertThatThrownBy(() -> dictionary.whenLoaded().get(5, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void numberRequestedWithoutWaiting() throws Exception {
+        start(0, 5000);
+        dictionary.request("Sunderland");
+        dictionary.request("Sunderland");
+        assertThat(dictionary.find("Sunderland")).isNull();
+
+        long timeout = System.currentTimeMillis() + 5000;
+
+        while (producer.history().isEmpty() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertThat(producer.history()).hasSize(1);
+        ProducerRecord<String, String> request = producer.history().get(0);
+        assertThat(request.topic()).isEqualTo(KafkaIdDictionary.REQUESTS_TOPIC);
+        assertThat(request.value()).isEqualTo("Sunderland");
+
+        consumer.addRecord(assigned(0, "Sunderland", 3));
+
+        while (dictionary.find("Sunderland") == null && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertThat(dictionary.find("Sunderland")).isEqualTo(3);
+        assertThat(dictionary.value(3)).isEqualTo("Sunderland");
+    }
+
+    @Test
+    public void unknownValueRejected() {
+        start(0, 5000);
+
+        assertThatThrownBy(() -> dictionary.value(3)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(dictionary.find("Leeds United")).isNull();
+    }
+
+    @Test
+    public void numbersAssignedInOrder() throws Exception {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "KafkaIdDictionaryTest");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, Files.createTempDirectory("id_dictionary").toString());
+        ConsumerRecordFactory<String, String> factory = new ConsumerRecordFactory<>(new StringSerializer(),
+            new StringSerializer());
+        Map<String, Integer> assigned = new LinkedHashMap<>();
+        TopologyTestDriver driver = new TopologyTestDriver(KafkaIdDictionary.assignerTopology(), props);
+
+        try {
+            for (String club : new String[] {"Sunderland", "Derby County", "Sunderland"}) {
+                driver.pipeInput(factory.create(KafkaIdDictionary.REQUESTS_TOPIC, club, club));
+                ProducerRecord<String, Integer> output = driver.readOutput(KafkaIdDictionary.IDS_TOPIC,
+                    new StringDeserializer(), new IntegerDeserializer());
+                assertThat(assigned.putIfAbsent(output.key(), output.value())).isIn(null, output.value());
+            }
+        } finally {
+            driver.close();
+        }
+        assertThat(assigned).containsExactly(Map.entry("Sunderland", 0), Map.entry("Derby County", 1));
+    }
+
+    private void start(long endOffset, long timeout) {
+        consumer.updateBeginningOffsets(Map.of(IDS_PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(IDS_PARTITION, endOffset));
+        dictionary = new KafkaIdDictionary(null, timeout, producer, consumer).start();
+    }
+
+    private static ConsumerRecord<String, Integer> assigned(long offset, String value, int id) {
+        return new ConsumerRecord<>(KafkaIdDictionary.IDS_TOPIC, 0, offset, value, id);
+    }
+}
@@ -0,0 +1,144 @@
+package org.djar.football.repo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.junit.jupiter.api.Test;
+
+public class StateStoreRepositoryTest {
+
+    private final Map<Object, String> data = new TreeMap<>();
+    private boolean available = true;
+    private final StateStoreRepository<String> repository = new StateStoreRepository<>("store", () -> {
+        if (!available) {
+            throw new InvalidStateStoreException("the state store, store, may have migrated to another instance");
+        }
+        return new MapStore();
+    });
+
+    @Test
+    public void previousResultsServedWhileUnavailable() {
+        repository.setMaxStaleness(60000);
+        data.put("1", "Sunderland");
+        data.put("2", "Derby County");
+
+        assertThat(repository.find("1")).contains("Sunderland");
+        assertThat(repository.findAll().collectList().block()).containsExactly("Sunderland", "Derby County");
+        data.put("1", "Leeds United");
+        available = false;
+
+        assertThat(repository.find("1")).contains("Sunderland");
+        assertThat(repository.findAll().collectList().block()).containsExactly("Sunderland", "Derby County");
+        assertThatThrownBy(() -> repository.find("2")).isInstanceOf(InvalidStateStoreException.class);
+
+        available = true;
+        assertThat(repository.find("1")).contains("Leeds United");
+    }
+
+    @Test
+    public void staleResultsNotServed() throws InterruptedException {
+        repository.setMaxStaleness(1);
+        data.put("1", "Sunderland");
+        assertThat(repository.find("1")).contains("Sunderland");
+        available = false;
+        Thread.sleep(10);
+
+        assertThatThrownBy(() -> repository.find("1")).isInstanceOf(InvalidStateStoreException.class);
+    }
+
+    @Test
+    public void oldestResultsEvicted() {
+        repository.setMaxStaleness(60000);
+        repository.setMaxResults(2);
+        data.put("1", "Sunderland");
+        data.put("2", "Derby County");
+        data.put("3", "Leeds United");
+
+        repository.find("1");
+        repository.find("2");
+        repository.find("1");
+        repository.find("3");
+        assertThat(repository.resultCount()).isEqualTo(2);
+        available = false;
+
+        assertThat(repository.find("1")).contains("Sunderland");
+        assertThat(repository.find("3")).contains("Leeds United");
+        assertThatThrownBy(() -> repository.find("2")).isInstanceOf(InvalidStateStoreException.class);
+    }
+
+    @Test
+    public void staleResultsEvicted() throws InterruptedException {
+        repository.setMaxStaleness(5);
+        data.put("1", "Sunderland");
+        data.put("2", "Derby County");
+
+        repository.find("1");
+        Thread.sleep(10);
+        repository.find("2");
+        assertThat(repository.resultCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void failsImmediatelyByDefault() {
+        data.put("1", "Sunderland");
+        assertThat(repository.find("1")).contains("Sunderland");
+        available = false;
+
+        assertThatThrownBy(() -> repository.find("1")).isInstanceOf(InvalidStateStoreException.class);
+        assertThatThrownBy(() -> repository.findAll().blockLast()).isInstanceOf(InvalidStateStoreException.class);
+    }
+
+    private class MapStore implements ReadOnlyKeyValueStore<Object, String> {
+
+        @Override
+        public String get(Object key) {
+            return data.get(key);
+        }
+
+        @Override
+        public KeyValueIterator<Object, String> range(Object from, Object to) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public KeyValueIterator<Object, String> all() {
+            Iterator<Map.Entry<Object, String>> entries = new ArrayList<>(data.entrySet()).iterator();
+
+            return new KeyValueIterator<>() {
+
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public KeyValue<Object, String> next() {
+                    Map.Entry<Object, String> entry = entries.next();
+                    return KeyValue.pair(entry.getKey(), entry.getValue());
+                }
+
+                @Override
+                public Object peekNextKey() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public long approximateNumEntries() {
+            return data.size();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.EnumMap;
+import java.util.Map;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveProducerTest {
+
+    private final Map<ProducerProfile, MockProducer<String, String>> producers = new EnumMap<>(ProducerProfile.class);
+    private final AdaptiveProducer<String, String> producer = new AdaptiveProducer<>(profile -> {
+        MockProducer<String, String> mock = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+        producers.put(profile, mock);
+        return mock;
+    });
+
+    @Test
+    public void chooseByLoad() {
+        assertThat(AdaptiveProducer.choose(ProducerProfile.LOW_LATENCY, 1, 10_000, 0))
+            .isEqualTo(ProducerProfile.LOW_LATENCY);
+        assertThat(AdaptiveProducer.choose(ProducerProfile.LOW_LATENCY, 30, 10_000, 0))
+            .isEqualTo(ProducerProfile.HIGH_THROUGHPUT);
+        assertThat(AdaptiveProducer.choose(ProducerProfile.HIGH_THROUGHPUT, 20, 10_000, 0))
+            .isEqualTo(ProducerProfile.HIGH_THROUGHPUT);
+        assertThat(AdaptiveProducer.choose(ProducerProfile.HIGH_THROUGHPUT, 20, 5, 0))
+            .isEqualTo(ProducerProfile.LOW_LATENCY);
+        // no samples
+        assertThat(AdaptiveProducer.choose(ProducerProfile.LOW_LATENCY, Double.NaN, Double.NaN, 0))
+            .isEqualTo(ProducerProfile.LOW_LATENCY);
+        assertThat(AdaptiveProducer.choose(ProducerProfile.HIGH_THROUGHPUT, Double.NaN, Double.NaN, 0))
+            .isEqualTo(ProducerProfile.HIGH_THROUGHPUT);
+    }
+
+    @Test
+    public void chooseByPendingRecords() {
+        // the queue time of a single sender stays near 0
+        assertThat(AdaptiveProducer.choose(ProducerProfile.LOW_LATENCY, 0, 10_000, 500))
+            .isEqualTo(ProducerProfile.HIGH_THROUGHPUT);
+        assertThat(AdaptiveProducer.choose(ProducerProfile.HIGH_THROUGHPUT, 20, 5, 500))
+            .isEqualTo(ProducerProfile.HIGH_THROUGHPUT);
+    }
+
+    @Test
+    public void switchWhenRecordsNotAcknowledged() {
+        for (int i = 0; i <= AdaptiveProducer.PENDING_HIGH; i++) {
+            producer.send(new ProducerRecord<>("topic", "m1", "goal" + i));
+        }
+        producer.maybeSwitch(System.currentTimeMillis() + AdaptiveProducer.CHECK_INTERVAL_MS);
+        assertThat(producer.getProfile()).isEqualTo(ProducerProfile.HIGH_THROUGHPUT);
+    }
+
+    @Test
+    public void pendingRecordsAcknowledged() {
+        MockProducer<String, String> lowLatency = producers.get(ProducerProfile.LOW_LATENCY);
+
+        for (int i = 0; i <= AdaptiveProducer.PENDING_HIGH; i++) {
+            producer.send(new ProducerRecord<>("topic", "m1", "goal" + i));
+        }
+        lowLatency.flush();
+        producer.maybeSwitch(System.currentTimeMillis() + AdaptiveProducer.CHECK_INTERVAL_MS);
+        assertThat(producer.getProfile()).isEqualTo(ProducerProfile.LOW_LATENCY);
+    }
+
+    @Test
+    public void switchAfterPreviousRecordsAcknowledged() {
+        producer.send(new ProducerRecord<>("topic", "m1", "first"));
+        producer.switchTo(ProducerProfile.HIGH_THROUGHPUT);
+        producer.send(new ProducerRecord<>("topic", "m1", "second"));
+
+        MockProducer<String, String> lowLatency = producers.get(ProducerProfile.LOW_LATENCY);
+        MockProducer<String, String> highThroughput = producers.get(ProducerProfile.HIGH_THROUGHPUT);
+        assertThat(producer.getProfile()).isEqualTo(ProducerProfile.HIGH_THROUGHPUT);
+        assertThat(lowLatency.history()).extracting(record -> record.value()).containsExactly("first");
+        assertThat(lowLatency.flushed()).isTrue();
+        assertThat(highThroughput.history()).extracting(record -> record.value()).containsExactly("second");
+        assertThat(highThroughput.flushed()).isFalse();
+    }
+}
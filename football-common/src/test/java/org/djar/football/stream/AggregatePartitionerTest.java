@@ -0,0 +1,64 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.processor.internals.DefaultStreamPartitioner;
+import org.junit.jupiter.api.Test;
+
+public class AggregatePartitionerTest {
+
+    private static final Node NODE = new Node(0, "localhost", 9092);
+
+    private final AggregatePartitioner partitioner = new AggregatePartitioner();
+    private final Cluster cluster = new Cluster("test", List.of(NODE), List.of(
+            partition("fb-event.match-started", 0), partition("fb-event.match-started", 1),
+            partition("fb-event.match-started", 2), partition("fb-event.goal-scored", 0),
+            partition("fb-event.goal-scored", 1), partition("fb-event.goal-scored", 2)),
+            Set.of(), Set.of());
+
+    @Test
+    public void sameMatchSamePartition() {
+        var streamPartitioner = new DefaultStreamPartitioner<String, Object>(Serdes.String().serializer(), cluster,
+                "fb-event.goal-scored");
+
+        for (int i = 0; i < 100; i++) {
+            String matchId = "Match-" + i;
+            byte[] key = matchId.getBytes(StandardCharsets.UTF_8);
+            int started = partitioner.partition("fb-event.match-started", matchId, key, null, null, cluster);
+            int goal = partitioner.partition("fb-event.goal-scored", matchId, key, null, null, cluster);
+
+            assertThat(goal).isEqualTo(started);
+            assertThat(AggregatePartitioner.partition(matchId, 3)).isEqualTo(started);
+            // records written by the topologies
+            assertThat(streamPartitioner.partition(matchId, null, 3)).isEqualTo(started);
+        }
+    }
+
+    @Test
+    public void eventWithoutKey() {
+        assertThatThrownBy(() -> partitioner.partition("fb-event.goal-scored", null, null, null, null, cluster))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void coPartitionedTopics() {
+        KafkaStreamsStarter.checkCoPartitioned(Map.of("fb-event.match-started", 3, "fb-event.goal-scored", 3));
+
+        assertThatThrownBy(() -> KafkaStreamsStarter.checkCoPartitioned(
+                Map.of("fb-event.match-started", 3, "fb-event.goal-scored", 1)))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static PartitionInfo partition(String topic, int partition) {
+        return new PartitionInfo(topic, partition, NODE, new Node[] {NODE}, new Node[] {NODE});
+    }
+}
@@ -0,0 +1,34 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class DebeziumEnvelopeDeserializerTest {
+
+    private final DebeziumEnvelopeDeserializer deserializer = new DebeziumEnvelopeDeserializer("id", "name");
+
+    @Test
+    public void envelopeWithSchema() {
+        String json = "{\"schema\":{\"type\":\"struct\",\"fields\":[{\"field\":\"after\",\"name\":\"x\"}]},"
+                + "\"payload\":{\"before\":null,\"after\":{\"id\":7,\"name\":\"Player Seven\",\"age\":{\"y\":1}},"
+                + "\"source\":{\"name\":\"fb-connect\"},\"op\":\"c\",\"ts_ms\":1}}";
+
+        DebeziumEnvelope change = deserializer.deserialize("topic", json.getBytes());
+
+        assertThat(change.getOp()).isEqualTo("c");
+        assertThat(change.after("id")).isEqualTo("7");
+        assertThat(change.after("name")).isEqualTo("Player Seven");
+        assertThat(change.after("age")).isNull();
+    }
+
+    @Test
+    public void payloadOnly() {
+        String json = "{\"before\":{\"id\":7,\"name\":\"x\"},\"after\":null,\"op\":\"d\"}";
+
+        DebeziumEnvelope change = deserializer.deserialize("topic", json.getBytes());
+
+        assertThat(change.getOp()).isEqualTo("d");
+        assertThat(change.after("id")).isNull();
+    }
+}
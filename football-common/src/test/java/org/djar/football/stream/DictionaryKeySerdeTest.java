@@ -0,0 +1,35 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.djar.football.repo.LocalIdDictionary;
+import org.junit.jupiter.api.Test;
+
+public class DictionaryKeySerdeTest {
+
+    private final LocalIdDictionary dictionary = new LocalIdDictionary();
+    private final DictionaryKeySerde serde = new DictionaryKeySerde(dictionary);
+
+    @Test
+    public void roundTrip() {
+        dictionary.id("Nottingham Forest");
+        dictionary.id("Burton Albion");
+        byte[] first = serde.serialize("topic", "Nottingham Forest");
+        byte[] second = serde.serialize("topic", "Burton Albion");
+
+        assertThat(first).containsExactly(0, 0, 0, 0);
+        assertThat(second).containsExactly(0, 0, 0, 1);
+        assertThat(serde.serialize("topic", "Nottingham Forest")).isEqualTo(first);
+        assertThat(serde.deserialize("topic", second)).isEqualTo("Burton Albion");
+        assertThat(dictionary.value(0)).isEqualTo("Nottingham Forest");
+    }
+
+    @Test
+    public void numbersNotAssignedBySerializer() {
+        assertThatThrownBy(() -> serde.serialize("topic", "Nottingham Forest"))
+            .isInstanceOf(SerializationException.class);
+        assertThat(dictionary.find("Nottingham Forest")).isNull();
+    }
+}
@@ -0,0 +1,76 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+public class EventIdGeneratorTest {
+
+    private final EventIdGenerator generator = new EventIdGenerator("MatchApplication", 7);
+
+    @Test
+    public void timeOrdered() {
+        long start = System.currentTimeMillis();
+        String previous = generator.next();
+
+        for (int i = 0; i < 10_000; i++) {
+            String next = generator.next();
+            assertThat(next).hasSize(24);
+            assertThat(next.compareTo(previous)).isPositive();
+            previous = next;
+        }
+        assertThat(EventIdGenerator.timestamp(previous)).isBetween(start, System.currentTimeMillis() + 1);
+    }
+
+    @Test
+    public void uniqueAcrossThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<String>>> results = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            results.add(executor.submit(() -> {
+                List<String> ids = new ArrayList<>();
+
+                for (int j = 0; j < 10_000; j++) {
+                    ids.add(generator.next());
+                }
+                return ids;
+            }));
+        }
+        Set<String> ids = new HashSet<>();
+
+        for (Future<List<String>> result : results) {
+            ids.addAll(result.get());
+        }
+        executor.shutdown();
+        assertThat(ids).hasSize(40_000);
+    }
+
+    @Test
+    public void processScoped() {
+        String id = generator.next();
+
+        assertThat(new EventIdGenerator("MatchApplication", 8).next().substring(16)).isNotEqualTo(id.substring(16));
+        assertThat(new EventIdGenerator("PlayerApplication", 7).next().substring(16))
+            .isNotEqualTo(id.substring(16));
+    }
+
+    @Test
+    public void binaryForm() {
+        String id = generator.next();
+        byte[] bytes = EventIdGenerator.toBytes(id);
+
+        assertThat(bytes).hasSize(EventIdGenerator.BYTES);
+        assertThat(EventIdGenerator.fromBytes(bytes)).isEqualTo(id);
+        assertThatThrownBy(() -> EventIdGenerator.toBytes("5a0c6d2f-8f3e-4b3a-9c1e-0d5c2b1e4f6a"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,133 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.djar.football.model.event.Event;
+import org.djar.football.model.event.GoalScored;
+import org.djar.football.model.event.MatchFinished;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class EventJournalTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void uncommittedEntriesReadAfterReopening() {
+        EventJournal journal = new EventJournal(directory, 4096);
+        journal.append(List.of(event(new GoalScored("g1", "m1", 12, "p1", "Sunderland")),
+            event(new MatchFinished("m1"))));
+        journal.append(List.of(event(new MatchFinished("m2"))));
+        journal.append(List.of(event(new MatchFinished("m3"))));
+
+        assertThat(journal.getBacklog()).isEqualTo(4);
+
+        List<EventJournal.Entry> entries = journal.read(10);
+        assertThat(entries).hasSize(3);
+        assertThat(entries.get(0).getEvents()).extracting(Event::getAggId).containsExactly("m1", "m1");
+        assertThat(entries.get(0).getEvents().get(0).getMetadata().getEventId()).isEqualTo("id-m1");
+        journal.commit(entries.get(0));
+        assertThat(journal.getBacklog()).isEqualTo(2);
+        journal.close();
+
+        journal = new EventJournal(directory, 4096);
+        assertThat(journal.isDrained()).isFalse();
+        assertThat(journal.getBacklog()).isEqualTo(2);
+        assertThat(journal.read(10)).flatExtracting(EventJournal.Entry::getEvents).extracting(Event::getAggId)
+            .containsExactly("m2", "m3");
+        journal.commit(journal.read(10).get(1));
+        assertThat(journal.isDrained()).isTrue();
+        assertThat(journal.getBacklog()).isZero();
+        assertThat(journal.read(10)).isEmpty();
+        journal.close();
+    }
+
+    @Test
+    public void segmentsRolledAndDeleted() throws IOException {
+        EventJournal journal = new EventJournal(directory, 1024);
+
+        for (int i = 0; i < 20; i++) {
+            journal.append(List.of(event(new MatchFinished("m" + i))));
+        }
+        assertThat(segments().size()).isGreaterThan(2);
+
+        List<EventJournal.Entry> entries = journal.read(100);
+        assertThat(entries).flatExtracting(EventJournal.Entry::getEvents).extracting(Event::getAggId)
+            .hasSize(20).startsWith("m0").endsWith("m19");
+        journal.commit(entries.get(19));
+        assertThat(segments()).hasSize(1);
+        journal.close();
+    }
+
+    @Test
+    public void tornEntryDiscarded() throws IOException {
+        EventJournal journal = new EventJournal(directory, 4096);
+        journal.append(List.of(event(new MatchFinished("m1"))));
+        journal.append(List.of(event(new MatchFinished("m2"))));
+        journal.close();
+
+        // corrupt the last byte of the second entry, as if the process died while writing it
+        Path segment = segments().get(0);
+        int end = journalEnd(segment);
+
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0}), end - 1);
+        }
+        journal = new EventJournal(directory, 4096);
+        assertThat(journal.read(10)).flatExtracting(EventJournal.Entry::getEvents).extracting(Event::getAggId)
+            .containsExactly("m1");
+
+        journal.append(List.of(event(new MatchFinished("m3"))));
+        assertThat(journal.read(10)).flatExtracting(EventJournal.Entry::getEvents).extracting(Event::getAggId)
+            .containsExactly("m1", "m3");
+        journal.close();
+    }
+
+    private static <E extends Event> E event(E event) {
+        event.getMetadata().setEventId("id-" + event.getAggId());
+        event.getMetadata().setProcessId("test");
+        event.getMetadata().setTimestamp(1);
+        return event;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    // the position after the last entry, found by the end marker
+    private static int journalEnd(Path segment) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int position = 0;
+
+        while (data.getInt(position) > 0) {
+            position += 2 * Integer.BYTES + data.getInt(position);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,186 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.djar.football.model.event.Event;
+import org.djar.football.model.event.GoalScored;
+import org.djar.football.model.event.MatchFinished;
+import org.junit.jupiter.api.Test;
+
+public class EventPublisherTest {
+
+    private final MockProducer<String, Event> producer = new MockProducer<>(true, new StringSerializer(),
+            new JsonPojoSerde<>());
+
+    private final List<MockProducer<String, Event>> transactionalProducers = new ArrayList<>();
+
+    @Test
+    public void fireAllInTransaction() {
+        EventPublisher publisher = transactionalPublisher();
+
+        publisher.fire(new MatchFinished("m0")).block();
+        publisher.fireAll(List.of(new GoalScored("g1", "m1", 89, "p1", "Sunderland"), new MatchFinished("m1")))
+            .block();
+
+        MockProducer<String, Event> transactionalProducer = transactionalProducers.get(0);
+        assertThat(transactionalProducer.transactionCommitted()).isTrue();
+        assertThat(transactionalProducer.history()).extracting(record -> record.topic())
+            .containsExactly("fb-event.goal-scored", "fb-event.match-finished");
+        assertThat(transactionalProducer.history()).extracting(record -> record.key()).containsOnly("m1");
+        assertThat(transactionalProducer.history()).extracting(record -> record.value().getMetadata().getProcessId())
+            .containsOnly("test");
+        // the single events are sent without transactions
+        assertThat(producer.history()).extracting(record -> record.key()).containsExactly("m0");
+        assertThat(producer.transactionInitialized()).isFalse();
+        assertThat(producer.flushed()).isTrue();
+    }
+
+    @Test
+    public void fencedProducerRecreated() {
+        EventPublisher publisher = transactionalPublisher();
+        publisher.fireAll(List.of(new MatchFinished("m1"), new MatchFinished("m2"))).block();
+        transactionalProducers.get(0).fenceProducer();
+
+        assertThatThrownBy(() -> publisher.fireAll(List.of(new MatchFinished("m3"), new MatchFinished("m4")))
+            .block()).isInstanceOf(ProducerFencedException.class);
+        assertThat(transactionalProducers.get(0).closed()).isTrue();
+
+        publisher.fireAll(List.of(new MatchFinished("m5"), new MatchFinished("m6"))).block();
+        assertThat(transactionalProducers).hasSize(2);
+        assertThat(transactionalProducers.get(1).history()).extracting(record -> record.key())
+            .containsExactly("m5", "m6");
+    }
+
+    @Test
+    public void sendLatencyReported() {
+        EventPublisher publisher = new EventPublisher(producer, "test", 1);
+        publisher.setProfile(ProducerProfile.LOW_LATENCY);
+        assertThat(publisher.getSendLatency()).isNaN();
+
+        publisher.fire(new MatchFinished("m1")).block();
+
+        assertThat(publisher.getSendLatency()).isNotNegative();
+        assertThat(publisher.getProfile()).isEqualTo(ProducerProfile.LOW_LATENCY);
+    }
+
+    @Test
+    public void journaledEventsPublishedInOrder() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        // left by the previous run
+        EventJournal previous = new EventJournal(directory);
+        MatchFinished undrained = new MatchFinished("m1");
+        new EventPublisher(producer, "test", 1).fillOut(undrained);
+        previous.append(List.of(undrained));
+        previous.close();
+
+        EventJournal journal = new EventJournal(directory);
+        EventPublisher publisher = transactionalPublisher();
+        publisher.setJournal(journal);
+        publisher.fireAll(List.of(new GoalScored("g1", "m2", 89, "p1", "Sunderland"), new MatchFinished("m2")))
+            .block();
+
+        long timeout = System.currentTimeMillis() + 5000;
+
+        while (!journal.isDrained() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertThat(journal.isDrained()).isTrue();
+        assertThat(producer.history()).extracting(record -> record.key()).containsExactly("m1");
+        assertThat(transactionalProducers.get(0).history()).extracting(record -> record.key())
+            .containsExactly("m2", "m2");
+        assertThat(producer.history().get(0).value().getMetadata().getEventId())
+            .isEqualTo(undrained.getMetadata().getEventId());
+        publisher.close();
+    }
+
+    @Test
+    public void boundedJournalBacklog() throws Exception {
+        EventJournal journal = new EventJournal(Files.createTempDirectory("journal"));
+        EventPublisher publisher = transactionalPublisher();
+        publisher.setJournal(journal);
+        publisher.setMaxJournalBacklog(1);
+
+        assertThatThrownBy(() -> publisher.fireAll(List.of(new MatchFinished("m1"), new MatchFinished("m2")))
+            .block()).isInstanceOf(PublisherOverloadedException.class);
+        publisher.fire(new MatchFinished("m3")).block();
+
+        long timeout = System.currentTimeMillis() + 5000;
+
+        while (publisher.getJournalBacklog() > 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertThat(publisher.getJournalBacklog()).isZero();
+        assertThat(producer.history()).extracting(record -> record.key()).containsExactly("m3");
+        publisher.close();
+    }
+
+    @Test
+    public void journalErrorFailsRequest() throws Exception {
+        EventJournal journal = new EventJournal(Files.createTempDirectory("journal")) {
+            @Override
+            public synchronized void append(List<? extends Event> events) {
+                throw new NoSuchMethodError("java.nio.MappedByteBuffer.duplicate()");
+            }
+        };
+        EventPublisher publisher = new EventPublisher(producer, "test", 1);
+        publisher.setJournal(journal);
+
+        assertThatThrownBy(() -> publisher.fire(new MatchFinished("m1")).block(Duration.ofSeconds(5)))
+            .isInstanceOf(IllegalStateException.class).hasCauseInstanceOf(NoSuchMethodError.class);
+        publisher.close();
+    }
+
+    @Test
+    public void fireAllRequiresTransactions() {
+        EventPublisher publisher = new EventPublisher(producer, "test", 1);
+
+        assertThatThrownBy(() -> publisher.fireAll(List.of(new MatchFinished("m1"), new MatchFinished("m2")))
+            .block()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void boundedInFlight() throws Exception {
+        MockProducer<String, Event> slowProducer = new MockProducer<>(false, new StringSerializer(),
+                new JsonPojoSerde<>());
+        EventPublisher publisher = new EventPublisher(slowProducer, "test", 1);
+        publisher.setMaxInFlight(2);
+
+        publisher.fire(new MatchFinished("m1")).subscribe();
+        publisher.fire(new MatchFinished("m2")).subscribe();
+
+        assertThat(publisher.getInFlight()).isEqualTo(2);
+        assertThatThrownBy(() -> publisher.fire(new MatchFinished("m3")).block())
+            .isInstanceOf(PublisherOverloadedException.class);
+
+        // sent by the sender thread
+        long timeout = System.currentTimeMillis() + 5000;
+
+        while (slowProducer.history().size() < 2 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        slowProducer.completeNext();
+
+        assertThat(publisher.getInFlight()).isEqualTo(1);
+        publisher.fire(new MatchFinished("m4")).subscribe();
+        assertThat(publisher.getInFlight()).isEqualTo(2);
+        publisher.close();
+    }
+
+    private EventPublisher transactionalPublisher() {
+        return new EventPublisher(producer, () -> {
+            MockProducer<String, Event> transactionalProducer = new MockProducer<>(true, new StringSerializer(),
+                new JsonPojoSerde<>());
+            transactionalProducers.add(transactionalProducer);
+            return transactionalProducer;
+        }, "test", 1);
+    }
+}
@@ -0,0 +1,113 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.Consumed;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.test.ConsumerRecordFactory;
+import org.djar.football.repo.IdDictionary;
+import org.djar.football.repo.LocalIdDictionary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class IdAssignmentTest {
+
+    private final AssignedOnDemand dictionary = new AssignedOnDemand();
+    private final ConsumerRecordFactory<String, String> factory = new ConsumerRecordFactory<>(
+        new StringSerializer(), new StringSerializer());
+
+    private TopologyTestDriver driver;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        StreamsBuilder builder = new StreamsBuilder();
+        StreamsUtils.assignIds(builder, builder.stream("in", Consumed.with(Serdes.String(), Serdes.String())),
+            "club_unassigned", dictionary, Serdes.String())
+            .to("out", Produced.with(new DictionaryKeySerde(dictionary), Serdes.String()));
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "IdAssignmentTest");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, Files.createTempDirectory("id_assignment").toString());
+        driver = new TopologyTestDriver(builder.build(), props);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    public void recordsWaitForNewNumbers() {
+        dictionary.assign("Sunderland");
+        pipe("Derby County", "1");
+        pipe("Sunderland", "2");
+        pipe("Derby County", "3");
+
+        assertThat(dictionary.requested).containsExactly("Derby County");
+        assertThat(read()).containsExactly("Sunderland:2");
+
+        driver.advanceWallClockTime(IdAssignment.CHECK_INTERVAL_MS);
+        assertThat(read()).isEmpty();
+
+        dictionary.assign("Derby County");
+        driver.advanceWallClockTime(IdAssignment.CHECK_INTERVAL_MS);
+        pipe("Derby County", "4");
+        assertThat(read()).containsExactly("Derby County:1", "Derby County:3", "Derby County:4");
+    }
+
+    private void pipe(String club, String value) {
+        driver.pipeInput(factory.create("in", club, value));
+    }
+
+    private List<String> read() {
+        List<String> result = new ArrayList<>();
+        ProducerRecord<String, String> record;
+
+        while ((record = driver.readOutput("out", new DictionaryKeySerde(dictionary), new StringDeserializer()))
+                != null) {
+            result.add(record.key() + ":" + record.value());
+        }
+        return result;
+    }
+
+    // assigns the numbers requested only when told to, like the assigner running elsewhere
+    private static class AssignedOnDemand implements IdDictionary {
+
+        private final LocalIdDictionary assigned = new LocalIdDictionary();
+        private final Set<String> requested = new HashSet<>();
+
+        void assign(String value) {
+            assigned.id(value);
+        }
+
+        @Override
+        public void request(String value) {
+            requested.add(value);
+        }
+
+        @Override
+        public Integer find(String value) {
+            return assigned.find(value);
+        }
+
+        @Override
+        public String value(int id) {
+            return assigned.value(id);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.djar.football.model.event.EventMetadata;
+import org.djar.football.model.event.GoalScored;
+import org.djar.football.model.view.MatchScore;
+import org.djar.football.model.view.PlayerGoals;
+import org.djar.football.model.view.TopPlayers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JsonPojoSerdeTest {
+
+    private static final String JSON_TOPIC = "fb-test.json";
+    private static final String BINARY_TOPIC = "fb-test.binary";
+
+    @BeforeEach
+    public void setUp() {
+        SerdeRegistry.configure(WireFormat.JSON, BINARY_TOPIC);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SerdeRegistry.configure(WireFormat.JSON);
+    }
+
+    @Test
+    public void binaryRoundTrip() {
+        JsonPojoSerde<GoalScored> serde = SerdeRegistry.serde(GoalScored.class);
+        GoalScored goal = new GoalScored("g1", "m1", 12, "p1", "Sunderland");
+
+        byte[] data = serde.serialize(BINARY_TOPIC, goal);
+        GoalScored result = serde.deserialize(BINARY_TOPIC, data);
+
+        assertThat(WireFormat.of(data)).isEqualTo(WireFormat.SMILE);
+        assertThat(data.length).isLessThan(serde.serialize(JSON_TOPIC, goal).length);
+        assertThat(result.getGoalId()).isEqualTo("g1");
+        assertThat(result.getMinute()).isEqualTo(12);
+        assertThat(result.getScoredFor()).isEqualTo("Sunderland");
+    }
+
+    @Test
+    public void readBothFormatsFromBinaryTopic() {
+        JsonPojoSerde<TopPlayers> serde = SerdeRegistry.serde(TopPlayers.class);
+        byte[] json = serde.serialize(JSON_TOPIC, new TopPlayers(10));
+        byte[] smile = serde.serialize(BINARY_TOPIC, new TopPlayers(10));
+
+        assertThat(WireFormat.of(json)).isEqualTo(WireFormat.JSON);
+        assertThat(serde.deserialize(BINARY_TOPIC, json).getLimit()).isEqualTo(10);
+        assertThat(serde.deserialize(JSON_TOPIC, smile).getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    public void storeChangelogFormat() {
+        SerdeRegistry.setWireFormat("test_scores_store", WireFormat.SMILE);
+        byte[] data = SerdeRegistry.serde(MatchScore.class)
+                .serialize("MatchApplication-test_scores_store-changelog", new MatchScore());
+
+        assertThat(WireFormat.of(data)).isEqualTo(WireFormat.SMILE);
+    }
+
+    @Test
+    public void metadataInHeaders() {
+        JsonPojoSerde<GoalScored> serde = SerdeRegistry.serde(GoalScored.class);
+        GoalScored goal = new GoalScored("g1", "m1", 12, "p1", "Sunderland");
+        goal.getMetadata().setEventId("e1");
+        goal.getMetadata().setVersion(2);
+        goal.timestamp(1000);
+        RecordHeaders headers = new RecordHeaders();
+        EventHeaders.write(goal.getMetadata(), headers);
+
+        byte[] data = serde.serialize(JSON_TOPIC, headers, goal);
+        EventMetadata result = serde.deserialize(JSON_TOPIC, headers, data).getMetadata();
+
+        assertThat(new String(data)).doesNotContain("metadata");
+        assertThat(EventHeaders.version(headers)).isEqualTo(2);
+        assertThat(result.getEventId()).isEqualTo("e1");
+        assertThat(result.getVersion()).isEqualTo(2);
+        assertThat(result.getTimestamp()).isEqualTo(1000);
+    }
+
+    @Test
+    public void generatedCodecCompatibleWithDataBinding() throws Exception {
+        JsonPojoSerde<TopPlayers> serde = SerdeRegistry.serde(TopPlayers.class);
+        PlayerGoals player = new PlayerGoals("p1", "Player One");
+        player.setGoals(3);
+        TopPlayers top = new TopPlayers(5).aggregate(player);
+
+        byte[] generated = serde.serialize(JSON_TOPIC, top);
+        TopPlayers result = serde.deserialize(JSON_TOPIC, SerdeRegistry.mapper().writeValueAsBytes(top));
+
+        assertThat(SerdeRegistry.mapper().readTree(generated)).isEqualTo(SerdeRegistry.mapper().valueToTree(top));
+        assertThat(result.getLimit()).isEqualTo(5);
+        assertThat(result.getPlayers()).extracting(PlayerGoals::getPlayerName).containsExactly("Player One");
+        assertThat(serde.deserialize(BINARY_TOPIC, serde.serialize(BINARY_TOPIC, top)).getPlayers().get(0)
+            .getGoals()).isEqualTo(3);
+    }
+
+    @Test
+    public void generatedCodecReadsIntoConstructor() {
+        JsonPojoSerde<PlayerGoals> serde = SerdeRegistry.serde(PlayerGoals.class);
+        PlayerGoals player = new PlayerGoals("p1", "Player One");
+        player.markApplied("g1");
+
+        PlayerGoals result = serde.deserialize(JSON_TOPIC, serde.serialize(JSON_TOPIC, player));
+        // the collections missing in older records are created empty
+        PlayerGoals older = serde.deserialize(JSON_TOPIC, "{\"playerId\":\"p1\",\"goals\":2}".getBytes());
+
+        assertThat(result.getPlayerName()).isEqualTo("Player One");
+        assertThat(result.isApplied("g1")).isTrue();
+        assertThat(older.getGoals()).isEqualTo(2);
+        assertThat(older.appliedEvents()).isEmpty();
+    }
+
+    @Test
+    public void reusedOutputAfterFailure() throws Exception {
+        JsonPojoSerde<GoalScored> goalSerde = SerdeRegistry.serde(GoalScored.class);
+        JsonPojoSerde<TopPlayers> topSerde = SerdeRegistry.serde(TopPlayers.class);
+        GoalScored goal = new GoalScored("g1", "m1", 12, "p1", "Sunderland");
+        byte[] expected = SerdeRegistry.mapper().writeValueAsBytes(goal);
+
+        assertThat(goalSerde.serialize(JSON_TOPIC, goal)).isEqualTo(expected);
+        assertThat(topSerde.deserialize(JSON_TOPIC, topSerde.serialize(JSON_TOPIC, new TopPlayers(3))).getLimit())
+            .isEqualTo(3);
+        // fails in the middle of the document
+        assertThatThrownBy(() -> new JsonPojoSerde<>().serialize(JSON_TOPIC, Collections.singletonMap(null, "x")))
+            .isInstanceOf(SerializationException.class);
+        assertThat(goalSerde.serialize(JSON_TOPIC, goal)).isEqualTo(expected);
+    }
+
+    @Test
+    public void truncatedPayloadInError() {
+        byte[] data = new byte[100_000];
+        Arrays.fill(data, (byte)'x');
+
+        assertThatThrownBy(() -> SerdeRegistry.serde(GoalScored.class).deserialize(JSON_TOPIC, data))
+            .isInstanceOf(SerializationException.class)
+            .hasMessageEndingWith("... (100000 bytes)");
+    }
+}
@@ -0,0 +1,50 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import org.apache.kafka.streams.KafkaStreams.State;
+import org.apache.kafka.streams.Topology;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+public class KafkaStreamsHealthIndicatorTest {
+
+    @Test
+    public void upWhenRunningWithStoresRestored() {
+        assertThat(KafkaStreamsHealthIndicator.status(State.RUNNING, false, 100000, 20000)).isEqualTo(Status.UP);
+        assertThat(KafkaStreamsHealthIndicator.status(State.RUNNING, true, 100, 20000))
+            .isEqualTo(Status.OUT_OF_SERVICE);
+    }
+
+    @Test
+    public void outOfServiceWhileRestoring() {
+        assertThat(KafkaStreamsHealthIndicator.status(State.REBALANCING, false, 100, 20000))
+            .isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(KafkaStreamsHealthIndicator.status(State.REBALANCING, true, 100000, 20000))
+            .isEqualTo(Status.OUT_OF_SERVICE);
+    }
+
+    @Test
+    public void startedAfterDependency() {
+        KafkaStreamsStarter starter = new KafkaStreamsStarter("localhost:1", new Topology(), "test");
+        KafkaStreamsHealthIndicator indicator = new KafkaStreamsHealthIndicator(starter);
+        CompletableFuture<Void> dependency = new CompletableFuture<>();
+        starter.startAsync(dependency);
+
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(indicator.health().getDetails()).containsEntry("state", "WAITING_FOR_DEPENDENCY");
+
+        dependency.completeExceptionally(new IllegalStateException("Timeout loading the id dictionary"));
+        assertThat(starter.whenStarted()).isCompletedExceptionally();
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.DOWN);
+    }
+
+    @Test
+    public void downWhenStuckOrStopped() {
+        assertThat(KafkaStreamsHealthIndicator.status(State.REBALANCING, false, 100000, 20000))
+            .isEqualTo(Status.DOWN);
+        assertThat(KafkaStreamsHealthIndicator.status(State.ERROR, false, 100, 20000)).isEqualTo(Status.DOWN);
+        assertThat(KafkaStreamsHealthIndicator.status(State.NOT_RUNNING, false, 100, 20000)).isEqualTo(Status.DOWN);
+    }
+}
@@ -0,0 +1,50 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.junit.jupiter.api.Test;
+
+public class KafkaStreamsStarterTest {
+
+    @Test
+    public void streamTasksCountedPerSubtopology() {
+        List<Set<String>> subtopologies = List.of(
+            Set.of("fb-event.match-started", "fb-event.goal-scored"),
+            Set.of("fb-event.card-received"),
+            Set.of("KSTREAM-KEY-SELECT-0000000005-repartition"),
+            Set.of("KSTREAM-REDUCE-STATE-STORE-0000000010-repartition"));
+        Map<String, Integer> partitions = Map.of("fb-event.match-started", 4, "fb-event.goal-scored", 4,
+            "fb-event.card-received", 2, "App-host-KSTREAM-KEY-SELECT-0000000005-repartition", 3);
+
+        // 4 + 2 + 3 (existing repartition topic) + 4 (assumed)
+        assertThat(KafkaStreamsStarter.streamTasks(subtopologies, "App-host", partitions)).isEqualTo(13);
+    }
+
+    @Test
+    public void autoStreamThreadsLimitedByProcessorsAndTasks() {
+        assertThat(KafkaStreamsStarter.autoStreamThreads(8, 13)).isEqualTo(8);
+        assertThat(KafkaStreamsStarter.autoStreamThreads(8, 3)).isEqualTo(3);
+        assertThat(KafkaStreamsStarter.autoStreamThreads(8, 0)).isEqualTo(1);
+    }
+
+    @Test
+    public void retryBackoffDoubledUpToMax() {
+        assertThat(KafkaStreamsStarter.nextBackoff(100)).isEqualTo(200);
+        assertThat(KafkaStreamsStarter.nextBackoff(1600)).isEqualTo(2000);
+        assertThat(KafkaStreamsStarter.nextBackoff(2000)).isEqualTo(2000);
+    }
+
+    @Test
+    public void footballTopicsOfTopology() {
+        StreamsBuilder builder = new StreamsBuilder();
+        builder.stream("fb-event.goal-scored").groupByKey().count().toStream().to("fb-view.player-goals");
+        builder.stream("fb-connect.public.players").to("other");
+
+        assertThat(KafkaStreamsStarter.footballTopics(builder.build()))
+            .containsExactly("fb-connect.public.players", "fb-event.goal-scored", "fb-view.player-goals");
+    }
+}
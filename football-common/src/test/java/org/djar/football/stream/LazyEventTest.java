@@ -0,0 +1,49 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.djar.football.model.event.GoalScored;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LazyEventTest {
+
+    private static final String JSON_TOPIC = "fb-test.lazy-json";
+    private static final String BINARY_TOPIC = "fb-test.lazy-binary";
+
+    @BeforeEach
+    public void setUp() {
+        SerdeRegistry.configure(WireFormat.JSON, BINARY_TOPIC);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SerdeRegistry.configure(WireFormat.JSON);
+    }
+
+    private final GoalScored goal = new GoalScored("g1", "m1", 12, "p1", "Sunderland");
+
+    @Test
+    public void readFieldAndPassThrough() {
+        byte[] data = SerdeRegistry.serde(GoalScored.class).serialize(JSON_TOPIC, goal);
+        LazyEventSerde<GoalScored> serde = SerdeRegistry.lazySerde(GoalScored.class);
+
+        LazyEvent<GoalScored> lazy = serde.deserialize(JSON_TOPIC, data);
+
+        assertThat(lazy.field("scorerId")).isEqualTo("p1");
+        assertThat(lazy.field("unknown")).isNull();
+        assertThat(serde.serialize(BINARY_TOPIC, lazy)).isSameAs(data);
+        assertThat(lazy.get().getScoredFor()).isEqualTo("Sunderland");
+    }
+
+    @Test
+    public void readFieldFromBinary() {
+        byte[] data = SerdeRegistry.serde(GoalScored.class).serialize(BINARY_TOPIC, goal);
+
+        LazyEvent<GoalScored> lazy = SerdeRegistry.lazySerde(GoalScored.class).deserialize(BINARY_TOPIC, data);
+
+        assertThat(lazy.field("matchId")).isEqualTo("m1");
+        assertThat(lazy.field("minute")).isEqualTo("12");
+    }
+}
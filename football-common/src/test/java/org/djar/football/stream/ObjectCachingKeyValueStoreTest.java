@@ -0,0 +1,232 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsMetrics;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.processor.TaskId;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ObjectCachingKeyValueStoreTest {
+
+    private final Metrics metrics = new Metrics();
+    private final MapStore inner = new MapStore();
+    private final ObjectCachingKeyValueStore<String> store = new ObjectCachingKeyValueStore<>(inner,
+        Serdes.String(), 2);
+
+    @BeforeEach
+    public void setUp() {
+        StreamsMetrics streamsMetrics = stub(StreamsMetrics.class, Map.of(
+            "addSensor", args -> metrics.sensor((String)args[0]),
+            "removeSensor", args -> {
+                metrics.removeSensor(((Sensor)args[0]).name());
+                return null;
+            }));
+        ProcessorContext context = stub(ProcessorContext.class, Map.of(
+            "metrics", args -> streamsMetrics,
+            "taskId", args -> new TaskId(0, 1)));
+        store.init(context, store);
+    }
+
+    @Test
+    public void changesWrittenOnFlush() {
+        inner.data.put("1", "Sunderland");
+        store.put("1", store.get("1") + " AFC");
+        store.put("2", "Derby County");
+
+        assertThat(store.get("1")).isEqualTo("Sunderland AFC");
+        assertThat(inner.data).containsOnly(entry("1", "Sunderland"));
+        assertThat(inner.puts).isZero();
+
+        store.flush();
+        assertThat(inner.data).containsOnly(entry("1", "Sunderland AFC"), entry("2", "Derby County"));
+        assertThat(ObjectCachingKeyValueStore.hitRatio(metrics.metrics(), "store")).isEqualTo(0.5);
+    }
+
+    @Test
+    public void leastRecentlyUsedEvicted() {
+        store.put("1", "Sunderland");
+        store.put("2", "Derby County");
+        store.get("1");
+        store.put("3", "Leeds United");
+
+        assertThat(inner.data).containsOnly(entry("2", "Derby County"));
+    }
+
+    @Test
+    public void deletedEntriesHidden() {
+        inner.data.put("1", "Sunderland");
+        inner.data.put("2", "Derby County");
+        store.delete("1");
+        store.put("3", "Leeds United");
+
+        assertThat(store.get("1")).isNull();
+        assertThat(values(store.all())).containsExactly("Derby County", "Leeds United");
+
+        store.flush();
+        assertThat(inner.data).containsOnly(entry("2", "Derby County"), entry("3", "Leeds United"));
+    }
+
+    @Test
+    public void otherThreadsReadCopies() throws Exception {
+        String value = new String("Sunderland");
+        store.put("1", value);
+        String read = CompletableFuture.supplyAsync(() -> store.get("1")).get();
+
+        assertThat(read).isEqualTo(value).isNotSameAs(value);
+    }
+
+    @Test
+    public void closedWhenFlushFails() {
+        store.put("1", "Sunderland");
+        store.get("1");
+        inner.flushFailure = new IllegalStateException("disk full");
+
+        assertThatThrownBy(store::close).isSameAs(inner.flushFailure);
+        assertThat(inner.isOpen()).isFalse();
+        assertThat(ObjectCachingKeyValueStore.hitRatio(metrics.metrics(), "store")).isNaN();
+    }
+
+    private static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[] {type},
+            (proxy, method, args) -> methods.get(method.getName()).apply(args)));
+    }
+
+    private static Map.Entry<String, String> entry(String key, String value) {
+        return Map.entry(key, value);
+    }
+
+    private static List<String> values(KeyValueIterator<String, String> iterator) {
+        List<String> values = new ArrayList<>();
+        iterator.forEachRemaining(entry -> values.add(entry.value));
+        return values;
+    }
+
+    private static class MapStore implements KeyValueStore<String, String> {
+
+        private final TreeMap<String, String> data = new TreeMap<>();
+        private int puts;
+        private RuntimeException flushFailure;
+        private boolean open = true;
+
+        @Override
+        public void put(String key, String value) {
+            puts++;
+
+            if (value == null) {
+                data.remove(key);
+            } else {
+                data.put(key, value);
+            }
+        }
+
+        @Override
+        public String putIfAbsent(String key, String value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void putAll(List<KeyValue<String, String>> entries) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String delete(String key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String get(String key) {
+            return data.get(key);
+        }
+
+        @Override
+        public KeyValueIterator<String, String> range(String from, String to) {
+            return iterator(data.subMap(from, true, to, true));
+        }
+
+        @Override
+        public KeyValueIterator<String, String> all() {
+            return iterator(data);
+        }
+
+        private KeyValueIterator<String, String> iterator(Map<String, String> entries) {
+            var iterator = new ArrayList<>(entries.entrySet()).iterator();
+
+            return new KeyValueIterator<>() {
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public KeyValue<String, String> next() {
+                    Map.Entry<String, String> entry = iterator.next();
+                    return KeyValue.pair(entry.getKey(), entry.getValue());
+                }
+
+                @Override
+                public String peekNextKey() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public long approximateNumEntries() {
+            return data.size();
+        }
+
+        @Override
+        public String name() {
+            return "store";
+        }
+
+        @Override
+        public void init(ProcessorContext context, StateStore root) {
+        }
+
+        @Override
+        public void flush() {
+            if (flushFailure != null) {
+                throw flushFailure;
+            }
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        @Override
+        public boolean persistent() {
+            return false;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsMetrics;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.TaskId;
+import org.apache.kafka.streams.processor.internals.StreamsMetricsImpl;
+import org.apache.kafka.streams.state.KeyValueBytesStoreSupplier;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.Options;
+
+public class StoreBackendTest {
+
+    @AfterEach
+    public void tearDown() {
+        StreamsUtils.setStoreBackends();
+    }
+
+    @Test
+    public void backendsSelectedPerStore() {
+        StreamsUtils.setStoreBackends("team_ranking_store:IN_MEMORY", " player_store : MMAP");
+
+        assertThat(StreamsUtils.storeBackend("team_ranking_store")).isEqualTo(StoreBackend.IN_MEMORY);
+        assertThat(StreamsUtils.storeBackend("player_store")).isEqualTo(StoreBackend.MMAP);
+        assertThat(StreamsUtils.storeBackend("match_store")).isEqualTo(StoreBackend.ROCKSDB);
+    }
+
+    @Test
+    public void invalidBackendRejected() {
+        assertThatThrownBy(() -> StreamsUtils.setStoreBackends("team_ranking_store"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StreamsUtils.setStoreBackends("team_ranking_store:HEAP"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void sameMetricsScopeForAllBackends() {
+        for (StoreBackend backend : StoreBackend.values()) {
+            KeyValueBytesStoreSupplier supplier = backend.supplier("team_ranking_store");
+
+            assertThat(supplier.name()).isEqualTo("team_ranking_store");
+            assertThat(supplier.metricsScope()).isEqualTo(StoreBackend.METRICS_SCOPE);
+        }
+        assertThat(StoreBackend.IN_MEMORY.supplier("team_ranking_store").get().persistent()).isFalse();
+        assertThat(StoreBackend.MMAP.supplier("player_store").get().persistent()).isTrue();
+    }
+
+    @Test
+    public void storeMetricsRecordedAtDebugLevel() {
+        assertThat(putRate(Sensor.RecordingLevel.DEBUG)).isPositive();
+        assertThat(putRate(Sensor.RecordingLevel.INFO)).isZero();
+    }
+
+    @Test
+    public void mmapStoresReadMappedFiles() {
+        StreamsUtils.setStoreBackends("player_store:MMAP");
+
+        try (Options mmap = new Options(); Options rocksDb = new Options()) {
+            new RocksDBTuning().setConfig("player_store", mmap, Map.of());
+            new RocksDBTuning().setConfig("match_store", rocksDb, Map.of());
+
+            assertThat(mmap.allowMmapReads()).isTrue();
+            assertThat(mmap.compactionStyle()).isEqualTo(CompactionStyle.LEVEL);
+            assertThat(rocksDb.allowMmapReads()).isFalse();
+        }
+    }
+
+    // the put-rate of an in-memory store with the Kafka Streams metrics recorded at the level
+    private static double putRate(Sensor.RecordingLevel level) {
+        Metrics metrics = new Metrics(new MetricConfig().recordLevel(level));
+        StreamsMetrics streamsMetrics = new StreamsMetricsImpl(metrics, "test", Map.of());
+        ProcessorContext context = stub(ProcessorContext.class, Map.of(
+            "applicationId", args -> "StoreBackendTest",
+            "taskId", args -> new TaskId(0, 1),
+            "metrics", args -> streamsMetrics,
+            "register", args -> null));
+        KeyValueStore<String, String> store = Stores.keyValueStoreBuilder(
+            StoreBackend.IN_MEMORY.supplier("team_ranking_store"), Serdes.String(), Serdes.String())
+            .withLoggingDisabled().build();
+        store.init(context, store);
+        store.put("Sunderland", "1");
+
+        return metrics.metrics().entrySet().stream()
+            .filter(metric -> metric.getKey().name().equals("put-rate")
+                && metric.getKey().group().equals("stream-football-state-metrics")
+                && "team_ranking_store".equals(metric.getKey().tags().get("football-state-id")))
+            .mapToDouble(metric -> (double)metric.getValue().metricValue())
+            .findFirst().orElseThrow();
+    }
+
+    private static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[] {type},
+            (proxy, method, args) -> methods.get(method.getName()).apply(args)));
+    }
+}
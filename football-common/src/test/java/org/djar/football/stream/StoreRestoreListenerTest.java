@@ -0,0 +1,52 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.metrics.Measurable;
+import org.apache.kafka.common.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+
+public class StoreRestoreListenerTest {
+
+    private static final String CHANGELOG = "MatchApplication-host.1-match_store-changelog";
+
+    private final AtomicLong bytesConsumed = new AtomicLong(1000);
+    private final Metrics metrics = new Metrics();
+    private final StoreRestoreListener listener = new StoreRestoreListener(metrics::metrics);
+
+    @Test
+    public void recordsAndBytesRestored() {
+        addBytesConsumed("app-StreamThread-1-restore-consumer", CHANGELOG.replace('.', '_'), bytesConsumed);
+        addBytesConsumed("app-StreamThread-1-consumer", CHANGELOG, new AtomicLong(50));
+        TopicPartition partition0 = new TopicPartition(CHANGELOG, 0);
+        TopicPartition partition1 = new TopicPartition(CHANGELOG, 1);
+
+        listener.onRestoreStart(partition0, "match_store", 0, 100);
+        listener.onRestoreStart(partition1, "match_store", 10, 60);
+        listener.onBatchRestored(partition0, "match_store", 100, 100);
+        listener.onRestoreEnd(partition0, "match_store", 100);
+        bytesConsumed.addAndGet(4000);
+
+        StoreRestoreListener.Progress progress = listener.getStores().get("match_store");
+        assertThat(listener.isRestoring()).isTrue();
+        assertThat(progress.getTotalRecords()).isEqualTo(150);
+        assertThat(progress.getRestoredRecords()).isEqualTo(100);
+
+        listener.onBatchRestored(partition1, "match_store", 60, 50);
+        listener.onRestoreEnd(partition1, "match_store", 50);
+
+        assertThat(listener.isRestoring()).isFalse();
+        assertThat(progress.getRestoredRecords()).isEqualTo(150);
+        assertThat(progress.getRestoredBytes()).isEqualTo(4000);
+    }
+
+    private void addBytesConsumed(String clientId, String topic, AtomicLong value) {
+        MetricName name = metrics.metricName("bytes-consumed-total", "consumer-fetch-manager-metrics", "",
+            Map.of("client-id", clientId, "topic", topic));
+        metrics.addMetric(name, (Measurable)(config, now) -> value.get());
+    }
+}
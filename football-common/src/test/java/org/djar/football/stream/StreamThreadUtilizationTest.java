@@ -0,0 +1,50 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+public class StreamThreadUtilizationTest {
+
+    @Test
+    public void busyAndWaitingThreadsMeasured() throws Exception {
+        StreamThreadUtilization utilization = new StreamThreadUtilization("app", 200);
+        CountDownLatch stop = new CountDownLatch(1);
+        Thread busy = new Thread(() -> {
+            while (stop.getCount() > 0) {
+                Math.sqrt(System.nanoTime());
+            }
+        }, "app-StreamThread-1");
+        Thread waiting = new Thread(() -> {
+            try {
+                stop.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "app-StreamThread-2");
+        busy.start();
+        waiting.start();
+
+        try {
+            assertThat(utilization.getThreads()).containsExactly("app-StreamThread-1", "app-StreamThread-2");
+            assertThat(utilization.getUtilization("app-StreamThread-1")).isNaN();
+            Thread.sleep(500);
+
+            assertThat(utilization.getUtilization("app-StreamThread-1")).isGreaterThan(0.3);
+            assertThat(utilization.getUtilization("app-StreamThread-2")).isLessThan(0.1);
+            assertThat(utilization.getUtilization("other-StreamThread-1")).isNaN();
+        } finally {
+            stop.countDown();
+            busy.join();
+            waiting.join();
+        }
+    }
+
+    @Test
+    public void utilizationLimited() {
+        assertThat(StreamThreadUtilization.utilization(500, 1000)).isEqualTo(0.5);
+        assertThat(StreamThreadUtilization.utilization(1010, 1000)).isEqualTo(1);
+        assertThat(StreamThreadUtilization.utilization(10, 0)).isNaN();
+    }
+}
@@ -0,0 +1,57 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+public class StreamsPropertiesTest {
+
+    @Test
+    public void propertiesBound() {
+        StreamsProperties properties = bind(Map.of(
+            "kafka.bootstrapAddress", "kafka:9092",
+            "kafkaTimeout", "1000",
+            "streams.processingGuarantee", "at_least_once",
+            "streams.storeBackends", "player_store:MMAP,team_ranking_store:IN_MEMORY",
+            "streams.threads", "2",
+            "topics.partitions", "4",
+            "topics.partitionsPerTopic", "fb-view.top-players:8",
+            "wireFormat.default", "SMILE",
+            "wireFormat.binary", "match_store"));
+
+        assertThat(properties.getKafka().getBootstrapAddress()).isEqualTo("kafka:9092");
+        assertThat(properties.getKafkaTimeout()).isEqualTo(1000);
+        assertThat(properties.getStreamsStartupTimeout()).isEqualTo(20000);
+        assertThat(properties.getStreams().getProcessingGuarantee()).isEqualTo("at_least_once");
+        assertThat(properties.getStreams().getStoreBackends())
+            .containsExactly("player_store:MMAP", "team_ranking_store:IN_MEMORY");
+        assertThat(properties.getStreams().getThreads()).isEqualTo(2);
+        assertThat(properties.getTopics().getPartitions()).isEqualTo(4);
+        assertThat(properties.getTopics().getPartitionsPerTopic()).containsExactly("fb-view.top-players:8");
+        assertThat(properties.getTopics().getEventRetention()).isEqualTo(-1);
+        assertThat(properties.getWireFormat().getDefault()).isEqualTo(WireFormat.SMILE);
+        assertThat(properties.getWireFormat().getBinary()).containsExactly("match_store");
+    }
+
+    @Test
+    public void serviceDefaultsKeptIfNotSet() {
+        StreamsProperties defaults = new StreamsProperties();
+        defaults.getStreams().setStoreBackends("team_ranking_store:IN_MEMORY");
+        StreamsProperties properties = new Binder(new MapConfigurationPropertySource(Map.of("streams.threads", "1")))
+            .bind("", Bindable.ofInstance(defaults)).get();
+
+        assertThat(properties.getStreams().getStoreBackends()).containsExactly("team_ranking_store:IN_MEMORY");
+        assertThat(properties.getStreams().getProcessingGuarantee()).isEqualTo("exactly_once");
+        assertThat(properties.getStreams().getMetricsRecordingLevel()).isEqualTo("DEBUG");
+        assertThat(properties.getWireFormat().getDefault()).isEqualTo(WireFormat.JSON);
+    }
+
+    private static StreamsProperties bind(Map<String, String> values) {
+        return new Binder(new MapConfigurationPropertySource(values))
+            .bind("", Bindable.ofInstance(new StreamsProperties())).get();
+    }
+}
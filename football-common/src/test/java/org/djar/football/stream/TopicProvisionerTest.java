@@ -0,0 +1,49 @@
+package org.djar.football.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.junit.jupiter.api.Test;
+
+public class TopicProvisionerTest {
+
+    private final TopicProvisioner provisioner = new TopicProvisioner(3, (short)1);
+
+    @Test
+    public void eventTopicsRetained() {
+        provisioner.setEventRetention(86400000);
+        NewTopic topic = provisioner.newTopic("fb-event.goal-scored");
+
+        assertThat(topic.numPartitions()).isEqualTo(3);
+        assertThat(topic.configs()).isEqualTo(Map.of(TopicConfig.RETENTION_MS_CONFIG, "86400000"));
+    }
+
+    @Test
+    public void viewTopicsCompacted() {
+        provisioner.setPartitions("fb-view.top-players:4", "fb-view.match-score:2");
+        NewTopic topic = provisioner.newTopic("fb-view.top-players");
+
+        assertThat(topic.numPartitions()).isEqualTo(4);
+        assertThat(topic.configs())
+            .isEqualTo(Map.of(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT));
+        assertThat(provisioner.newTopic("fb-view.match-score").numPartitions()).isEqualTo(2);
+    }
+
+    @Test
+    public void otherTopicsProvisionedIfConfigured() {
+        assertThat(provisioner.isProvisioned("fb-connect.public.players")).isFalse();
+        assertThat(provisioner.isProvisioned("fb-dict.ids")).isFalse();
+
+        provisioner.setCompacted("fb-dict.ids");
+        assertThat(provisioner.isProvisioned("fb-dict.ids")).isTrue();
+    }
+
+    @Test
+    public void invalidPartitions() {
+        assertThatThrownBy(() -> provisioner.setPartitions("fb-view.top-players"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
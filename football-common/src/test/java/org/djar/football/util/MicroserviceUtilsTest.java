@@ -0,0 +1,28 @@
+package org.djar.football.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class MicroserviceUtilsTest {
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty(MicroserviceUtils.INSTANCE_ID_PROPERTY);
+    }
+
+    @Test
+    public void stableApplicationId() {
+        System.setProperty(MicroserviceUtils.INSTANCE_ID_PROPERTY, "view-basic:1");
+
+        assertThat(MicroserviceUtils.applicationId(TopicsTest.class)).isEqualTo("TopicsTest-view-basic_1");
+    }
+
+    @Test
+    public void hostNameByDefault() {
+        assertThat(MicroserviceUtils.instanceId()).isNotEmpty().doesNotContain(" ");
+        assertThat(MicroserviceUtils.applicationId(TopicsTest.class))
+            .isEqualTo("TopicsTest-" + MicroserviceUtils.instanceId());
+    }
+}
@@ -1,10 +1,13 @@
 package org.djar.football.match;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.nio.file.Paths;
 import java.util.Properties;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
-import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
 import org.djar.football.match.domain.Match;
@@ -13,14 +16,22 @@ import org.djar.football.match.repo.SeasonRepository;
 import org.djar.football.match.snapshot.DomainUpdater;
 import org.djar.football.model.event.Event;
 import org.djar.football.repo.StateStoreRepository;
+import org.djar.football.stream.AdaptiveProducer;
+import org.djar.football.stream.AggregatePartitioner;
+import org.djar.football.stream.EventJournal;
 import org.djar.football.stream.EventPublisher;
 import org.djar.football.stream.JsonPojoSerde;
+import org.djar.football.stream.KafkaStreamsHealthIndicator;
 import org.djar.football.stream.KafkaStreamsStarter;
+import org.djar.football.stream.ObjectCachingKeyValueStore;
+import org.djar.football.stream.ProducerProfile;
+import org.djar.football.stream.StreamsProperties;
 import org.djar.football.util.MicroserviceUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
@@ -31,39 +42,140 @@ public class MatchApplication {
 
     private static final String APP_ID = MicroserviceUtils.applicationId(MatchApplication.class);
 
-    @Value("${kafka.bootstrapAddress}")
-    private String kafkaBootstrapAddress;
-
     @Value("${apiVersion}")
     private int apiVersion;
 
-    @Value("${kafkaTimeout:60000}")
-    private long kafkaTimeout;
+    // ms, the commands are validated against results that old while the stores are restored
+    @Value("${repository.maxStaleness:10000}")
+    private long repositoryMaxStaleness;
+
+    // composite commands (EventPublisher.fireAll) are published in Kafka transactions, single events are not
+    @Value("${events.transactional:true}")
+    private boolean transactionalEvents;
+
+    // events sent and not acknowledged yet, more are rejected with 503
+    @Value("${events.maxInFlight:1000}")
+    private int maxInFlightEvents;
+
+    // directory of the local event journal, the events are published directly if not set
+    @Value("${events.journal:}")
+    private String eventJournal;
 
-    @Value("${streamsStartupTimeout:20000}")
-    private long streamsStartupTimeout;
+    // journaled events not published to Kafka yet, more are rejected with 503
+    @Value("${events.maxJournalBacklog:100000}")
+    private long maxJournalBacklog;
+
+    // LOW_LATENCY, HIGH_THROUGHPUT or ADAPTIVE (switches between them depending on the load)
+    @Value("${events.producerProfile:ADAPTIVE}")
+    private String producerProfile;
+
+    // kafka.*, streams.*, topics.* and wireFormat.*, the store backends unless set by streams.storeBackends
+    @Bean
+    public StreamsProperties streamsProperties() {
+        StreamsProperties properties = new StreamsProperties();
+        properties.getStreams().setStoreBackends("player_store:MMAP");
+        return properties;
+    }
 
+    // started in the background, the service is ready (see the health) when the stores are restored
     @Bean
-    public KafkaStreams kafkaStreams() {
+    public KafkaStreamsStarter kafkaStreamsStarter() {
+        StreamsProperties properties = streamsProperties();
+        properties.configure();
         StreamsBuilder streamsBuilder = new StreamsBuilder();
         DomainUpdater snapshotBuilder = new DomainUpdater(leagueRepository());
         Topology topology = streamsBuilder.build();
         snapshotBuilder.init(topology);
-        KafkaStreamsStarter starter = new KafkaStreamsStarter(kafkaBootstrapAddress, topology, APP_ID);
-        starter.setKafkaTimeout(kafkaTimeout);
-        starter.setStreamsStartupTimeout(streamsStartupTimeout);
-        return starter.start();
+        KafkaStreamsStarter starter = properties.starter(topology, APP_ID);
+        starter.startAsync();
+        return starter;
+    }
+
+    @Bean
+    public HealthIndicator kafkaStreamsHealthIndicator(KafkaStreamsStarter starter) {
+        return new KafkaStreamsHealthIndicator(starter);
     }
 
     @Bean
     public EventPublisher eventPublisher() {
+        Producer<String, Event> producer;
+        ProducerProfile profile = null;
+
+        if (producerProfile.equals(AdaptiveProducer.ADAPTIVE)) {
+            producer = new AdaptiveProducer<>(this::eventProducer);
+        } else {
+            profile = ProducerProfile.valueOf(producerProfile);
+            producer = eventProducer(profile);
+        }
+        logger.info("Event producer profile: {}", profile != null ? profile : producerProfile);
+        var publisher = new EventPublisher(producer, transactionalEvents ? this::transactionalEventProducer : null,
+            APP_ID, apiVersion);
+        publisher.setMaxInFlight(maxInFlightEvents);
+        publisher.setMaxJournalBacklog(maxJournalBacklog);
+        publisher.setProfile(profile);
+
+        if (!eventJournal.isEmpty()) {
+            publisher.setJournal(new EventJournal(Paths.get(eventJournal)));
+        }
+        return publisher;
+    }
+
+    private Producer<String, Event> eventProducer(ProducerProfile profile) {
+        return new KafkaProducer<>(eventProducerProps(profile, APP_ID + "-" + profile.name().toLowerCase()));
+    }
+
+    // a transaction is sent at once by its commit, so there's nothing to batch
+    private Producer<String, Event> transactionalEventProducer() {
+        Properties producerProps = eventProducerProps(ProducerProfile.LOW_LATENCY, APP_ID + "-transactional");
+        // stable across restarts, so a restarted instance fences off its previous producer
+        producerProps.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, APP_ID + "-transactional");
+        return new KafkaProducer<>(producerProps);
+    }
+
+    private Properties eventProducerProps(ProducerProfile profile, String clientId) {
         Properties producerProps = new Properties();
-        producerProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapAddress);
+        producerProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG,
+            streamsProperties().getKafka().getBootstrapAddress());
         producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
         producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonPojoSerde.class.getName());
-        producerProps.put(ProducerConfig.CLIENT_ID_CONFIG, APP_ID);
-        var kafkaProducer = new KafkaProducer<String, Event>(producerProps);
-        return new EventPublisher(kafkaProducer, APP_ID, apiVersion);
+        producerProps.put(ProducerConfig.CLIENT_ID_CONFIG, clientId);
+        producerProps.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, AggregatePartitioner.class.getName());
+        return profile.configure(producerProps);
+    }
+
+    @Bean
+    public MeterBinder eventPublisherMetrics(EventPublisher publisher) {
+        return registry -> {
+            Gauge.builder("football.events.inFlight", publisher, EventPublisher::getInFlight)
+                .description("Events sent and not acknowledged yet")
+                .register(registry);
+            Gauge.builder("football.events.journalBacklog", publisher, EventPublisher::getJournalBacklog)
+                .description("Journaled events not published to Kafka yet")
+                .register(registry);
+            Gauge.builder("football.events.sendLatency", publisher, EventPublisher::getSendLatency)
+                .description("Average time to the acknowledgement of an event in milliseconds")
+                .register(registry);
+
+            for (ProducerProfile profile : ProducerProfile.values()) {
+                Gauge.builder("football.events.producerProfile", publisher, p -> p.getProfile() == profile ? 1 : 0)
+                    .description("1 for the producer profile in use")
+                    .tag("profile", profile.name())
+                    .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder objectCacheMetrics(KafkaStreamsStarter starter) {
+        return registry -> {
+            for (String store : new String[] {DomainUpdater.MATCH_STORE, DomainUpdater.PLAYER_STORE}) {
+                Gauge.builder("football.streams.objectCache.hitRatio", starter, s -> s.getKafkaStreams() != null
+                        ? ObjectCachingKeyValueStore.hitRatio(s.getKafkaStreams().metrics(), store) : Double.NaN)
+                    .description("Ratio of the aggregates read from the object cache of the store")
+                    .tag("store", store)
+                    .register(registry);
+            }
+        };
     }
 
     @Bean
@@ -73,12 +185,18 @@ public class MatchApplication {
 
     @Bean
     public StateStoreRepository<Match> matchRepository() {
-        return new StateStoreRepository<>(kafkaStreams(), DomainUpdater.MATCH_STORE);
+        return repository(DomainUpdater.MATCH_STORE);
     }
 
     @Bean
     public StateStoreRepository<Player> playerRepository() {
-        return new StateStoreRepository<>(kafkaStreams(), DomainUpdater.PLAYER_STORE);
+        return repository(DomainUpdater.PLAYER_STORE);
+    }
+
+    private <T> StateStoreRepository<T> repository(String storeName) {
+        StateStoreRepository<T> repository = new StateStoreRepository<>(kafkaStreamsStarter(), storeName);
+        repository.setMaxStaleness(repositoryMaxStaleness);
+        return repository;
     }
 
     public static void main(String[] args) {
@@ -1,5 +1,6 @@
 package org.djar.football.match.controller;
 
+import org.djar.football.stream.PublisherOverloadedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -26,4 +27,12 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         logger.error(request.getContextPath(), ex);
         return new ResponseEntity<>(ex.getMessage(), new HttpHeaders(), HttpStatus.UNPROCESSABLE_ENTITY);
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler({PublisherOverloadedException.class})
+    public ResponseEntity<Object> handleOverload(PublisherOverloadedException ex, WebRequest request) {
+        logger.warn(ex.getMessage());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<>(ex.getMessage(), headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
@@ -1,7 +1,9 @@
 package org.djar.football.match.domain;
 
 import java.util.Objects;
+import org.djar.football.codegen.GenerateCodec;
 
+@GenerateCodec
 public class Card {
 
     public enum Type {
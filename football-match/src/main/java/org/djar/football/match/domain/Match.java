@@ -2,10 +2,15 @@ package org.djar.football.match.domain;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import org.djar.football.codegen.GenerateCodec;
+import org.djar.football.model.Deduplicated;
 
-public class Match {
+@GenerateCodec
+public class Match implements Deduplicated {
 
     public enum State {
         SCHEDULED, STARTED, FINISHED, CANCELLED;
@@ -21,6 +26,8 @@ public class Match {
     private List<Goal> homeGoals = new ArrayList<>();
     private List<Goal> awayGoals = new ArrayList<>();
     private List<Card> cards = new ArrayList<>();
+    // the ids of the events applied, in at_least_once mode only
+    private Set<String> appliedEvents = new HashSet<>();
 
     private Match() {
     }
@@ -34,6 +41,16 @@ public class Match {
         this.state = State.SCHEDULED;
     }
 
+    Match(String id, String leagueId, LocalDateTime date, Team homeTeam, Team awayTeam, State state,
+            List<Goal> homeGoals, List<Goal> awayGoals, List<Card> cards, Set<String> appliedEvents) {
+        this(id, leagueId, date, homeTeam, awayTeam);
+        this.state = state;
+        this.homeGoals = homeGoals;
+        this.awayGoals = awayGoals;
+        this.cards = cards;
+        this.appliedEvents = appliedEvents;
+    }
+
     public String getId() {
         return id;
     }
@@ -70,6 +87,11 @@ public class Match {
         return cards;
     }
 
+    @Override
+    public Set<String> appliedEvents() {
+        return appliedEvents;
+    }
+
     public void start() {
         if (state != State.SCHEDULED) {
             throw new IllegalStateException("Cannot start " + state + " match");
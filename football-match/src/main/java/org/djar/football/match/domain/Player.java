@@ -1,11 +1,18 @@
 package org.djar.football.match.domain;
 
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
+import org.djar.football.codegen.GenerateCodec;
+import org.djar.football.model.Deduplicated;
 
-public class Player {
+@GenerateCodec
+public class Player implements Deduplicated {
 
     private String id;
     private String name;
+    // the ids of the events applied, in at_least_once mode only
+    private Set<String> appliedEvents = new HashSet<>();
 
     private Player() {
     }
@@ -15,6 +22,11 @@ public class Player {
         this.name = name;
     }
 
+    Player(String id, String name, Set<String> appliedEvents) {
+        this(id, name);
+        this.appliedEvents = appliedEvents;
+    }
+
     public String getId() {
         return id;
     }
@@ -23,6 +35,11 @@ public class Player {
         return name;
     }
 
+    @Override
+    public Set<String> appliedEvents() {
+        return appliedEvents;
+    }
+
     @Override
     public String toString() {
         return name;
@@ -2,7 +2,9 @@ package org.djar.football.match.domain;
 
 import java.util.HashSet;
 import java.util.Set;
+import org.djar.football.codegen.GenerateCodec;
 
+@GenerateCodec
 public class Team {
 
     private String clubId;
@@ -15,10 +17,19 @@ public class Team {
         this.clubId = clubId;
     }
 
+    Team(String clubId, Set<String> memberIds) {
+        this.clubId = clubId;
+        this.memberIds = memberIds;
+    }
+
     public String getClubId() {
         return clubId;
     }
 
+    Set<String> memberIds() {
+        return memberIds;
+    }
+
     public boolean isMember(Player player) {
         return memberIds.contains(player.getId());
     }
@@ -1,8 +1,10 @@
 package org.djar.football.match.snapshot;
 
+import static org.djar.football.stream.StreamsUtils.addIndex;
 import static org.djar.football.stream.StreamsUtils.addProcessor;
 import static org.djar.football.stream.StreamsUtils.addStore;
 
+import java.time.ZoneOffset;
 import java.util.Objects;
 import org.apache.kafka.streams.Topology;
 import org.apache.kafka.streams.state.KeyValueStore;
@@ -16,6 +18,7 @@ import org.djar.football.model.event.MatchFinished;
 import org.djar.football.model.event.MatchScheduled;
 import org.djar.football.model.event.MatchStarted;
 import org.djar.football.model.event.PlayerStartedCareer;
+import org.djar.football.repo.CompositeKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,6 +28,8 @@ public class DomainUpdater {
 
     public static final String MATCH_STORE = "match_store";
     public static final String PLAYER_STORE = "player_store";
+    // season|date|match -> match id
+    public static final String MATCH_SEASON_INDEX = "match_season_index";
 
     private final SeasonRepository seasonRepository;
 
@@ -79,6 +84,10 @@ public class DomainUpdater {
             store.put(player.getId(), player);
         }, PLAYER_STORE);
 
+        addIndex(topology, MatchScheduled.class, MATCH_SEASON_INDEX, event -> CompositeKey.of(
+                seasonRepository.getDefault().getId(), event.getDate().toEpochSecond(ZoneOffset.UTC),
+                event.getMatchId()));
+
         addStore(topology, Match.class, MATCH_STORE, new Class[] {
                 MatchScheduled.class, MatchStarted.class, MatchFinished.class, GoalScored.class, CardReceived.class});
         addStore(topology, Player.class, PLAYER_STORE, PlayerStartedCareer.class);
@@ -2,17 +2,31 @@ package org.djar.football.match.snapshot;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.state.KeyValueIterator;
 import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
 import org.djar.football.match.domain.Match;
 import org.djar.football.match.domain.Player;
 import org.djar.football.match.repo.SeasonRepository;
 import org.djar.football.model.event.CardReceived;
+import org.djar.football.model.event.Event;
+import org.djar.football.model.event.EventMetadata;
 import org.djar.football.model.event.GoalScored;
 import org.djar.football.model.event.MatchFinished;
 import org.djar.football.model.event.MatchScheduled;
 import org.djar.football.model.event.MatchStarted;
 import org.djar.football.model.event.PlayerStartedCareer;
+import org.djar.football.repo.CompositeKey;
+import org.djar.football.stream.SerdeRegistry;
+import org.djar.football.stream.StreamsUtils;
 import org.djar.football.test.StreamsTester;
 import org.junit.After;
 import org.junit.Before;
@@ -24,6 +38,13 @@ public class DomainUpdaterTest {
 
     @Before
     public void setUp() throws Exception {
+        setUp(false);
+    }
+
+    private void setUp(boolean deduplication) {
+        StreamsUtils.setDeduplication(deduplication);
+        // the applied event ids are written with the aggregates, so they can wait in the cache together
+        StreamsUtils.setObjectCacheSize(deduplication ? 10 : 0);
         tester = new StreamsTester(getClass().getName());
 
         Topology topology = new Topology();
@@ -71,8 +92,73 @@ public class DomainUpdaterTest {
         assertThat(match2.getCards().size()).isEqualTo(1);
     }
 
+    @Test
+    public void testEventsAppliedOnce() throws Exception {
+        tester.close();
+        setUp(true);
+
+        sendWithIds("player-started-career.json", PlayerStartedCareer.class);
+        sendWithIds("match-scheduled.json", MatchScheduled.class);
+        sendWithIds("match-started.json", MatchStarted.class);
+        // sent again with the same record timestamps, as after a failure in at_least_once mode
+        sendWithIds("goal-scored.json", GoalScored.class);
+        sendWithIds("goal-scored.json", GoalScored.class);
+        sendWithIds("card-received.json", CardReceived.class);
+        sendWithIds("card-received.json", CardReceived.class);
+
+        ReadOnlyKeyValueStore<String, Match> matchStore = tester.getStore(DomainUpdater.MATCH_STORE);
+        Match match3 = matchStore.get("3");
+
+        assertThat(match3.getState()).isEqualTo(Match.State.STARTED);
+        assertThat(match3.getHomeGoals().size()).isEqualTo(3);
+        assertThat(match3.getAwayGoals().size()).isEqualTo(1);
+        assertThat(matchStore.get("1").getCards().size()).isEqualTo(1);
+    }
+
+    // the test events have no metadata
+    private <T extends Event> void sendWithIds(String file, Class<T> type) throws IOException {
+        ObjectMapper mapper = SerdeRegistry.mapper();
+        JsonNode nodes = mapper.readTree(getClass().getResource(file));
+        List<Event> events = new ArrayList<>();
+
+        for (JsonNode node : nodes) {
+            ((ObjectNode)node).set("metadata", mapper.valueToTree(
+                new EventMetadata(type.getSimpleName() + "-" + events.size(), "test", 1000, 1)));
+            events.add(mapper.treeToValue(node, type));
+        }
+        tester.sendEvents(1000, events.toArray(new Event[0]));
+    }
+
+    @Test
+    public void testSeasonIndex() throws Exception {
+        tester.sendEvents(getClass().getResource("match-scheduled.json"), MatchScheduled.class);
+
+        ReadOnlyKeyValueStore<CompositeKey, String> index = tester.getStore(DomainUpdater.MATCH_SEASON_INDEX);
+        String seasonId = new SeasonRepository().getDefault().getId();
+        long firstDay = LocalDateTime.parse("2017-08-04T00:00:00").toEpochSecond(ZoneOffset.UTC);
+        long secondDay = LocalDateTime.parse("2017-08-05T00:00:00").toEpochSecond(ZoneOffset.UTC);
+
+        assertThat(matchIds(index.range(CompositeKey.of(seasonId), CompositeKey.of(seasonId).prefixEnd())))
+            .containsExactly("1", "2", "3", "4");
+        assertThat(matchIds(index.range(CompositeKey.of(seasonId, secondDay),
+                CompositeKey.of(seasonId, secondDay + 86400))))
+            .containsExactly("3", "4");
+        assertThat(matchIds(index.range(CompositeKey.of(seasonId, firstDay), CompositeKey.of(seasonId, secondDay))))
+            .containsExactly("1", "2");
+        assertThat(matchIds(index.range(CompositeKey.of("2"), CompositeKey.of("2").prefixEnd()))).isEmpty();
+    }
+
+    private static List<String> matchIds(KeyValueIterator<CompositeKey, String> iterator) {
+        List<String> result = new ArrayList<>();
+        iterator.forEachRemaining(entry -> result.add(entry.value));
+        iterator.close();
+        return result;
+    }
+
     @After
     public void tearDown() throws Exception {
         tester.close();
+        StreamsUtils.setDeduplication(false);
+        StreamsUtils.setObjectCacheSize(0);
     }
 }
@@ -2,22 +2,28 @@ package org.djar.football.player;
 
 import java.util.Properties;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
-import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
 import org.djar.football.model.event.Event;
 import org.djar.football.player.connect.PlayerCommandConnector;
 import org.djar.football.player.snapshot.DomainUpdater;
+import org.djar.football.stream.AdaptiveProducer;
+import org.djar.football.stream.AggregatePartitioner;
 import org.djar.football.stream.EventPublisher;
 import org.djar.football.stream.JsonPojoSerde;
+import org.djar.football.stream.KafkaStreamsHealthIndicator;
 import org.djar.football.stream.KafkaStreamsStarter;
+import org.djar.football.stream.ProducerProfile;
+import org.djar.football.stream.StreamsProperties;
 import org.djar.football.util.MicroserviceUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
@@ -28,39 +34,64 @@ public class PlayerApplication {
 
     private static final String APP_ID = MicroserviceUtils.applicationId(PlayerApplication.class);
 
-    @Value("${kafka.bootstrapAddress}")
-    private String kafkaBootstrapAddress;
-
     @Value("${apiVersion}")
     private int apiVersion;
 
-    @Value("${kafkaTimeout:60000}")
-    private long kafkaTimeout;
+    // LOW_LATENCY, HIGH_THROUGHPUT or ADAPTIVE (switches between them depending on the load)
+    @Value("${events.producerProfile:LOW_LATENCY}")
+    private String producerProfile;
 
-    @Value("${streamsStartupTimeout:20000}")
-    private long streamsStartupTimeout;
+    // kafka.*, streams.*, topics.* and wireFormat.*
+    @Bean
+    public StreamsProperties streamsProperties() {
+        return new StreamsProperties();
+    }
 
+    // started in the background, the service is ready (see the health) when the stores are restored
     @Bean
-    public KafkaStreams kafkaStreams() {
+    public KafkaStreamsStarter kafkaStreamsStarter() {
+        StreamsProperties properties = streamsProperties();
+        properties.configure();
         StreamsBuilder streamsBuilder = new StreamsBuilder();
         Topology topology = streamsBuilder.build();
         new DomainUpdater().init(topology);
         new PlayerCommandConnector(eventPublisher()).build(streamsBuilder);
-        KafkaStreamsStarter starter = new KafkaStreamsStarter(kafkaBootstrapAddress, topology, APP_ID);
-        starter.setKafkaTimeout(kafkaTimeout);
-        starter.setStreamsStartupTimeout(streamsStartupTimeout);
-        return starter.start();
+        KafkaStreamsStarter starter = properties.starter(topology, APP_ID);
+        starter.startAsync();
+        return starter;
+    }
+
+    @Bean
+    public HealthIndicator kafkaStreamsHealthIndicator(KafkaStreamsStarter starter) {
+        return new KafkaStreamsHealthIndicator(starter);
     }
 
     @Bean
     public EventPublisher eventPublisher() {
+        Producer<String, Event> producer;
+        ProducerProfile profile = null;
+
+        if (producerProfile.equals(AdaptiveProducer.ADAPTIVE)) {
+            producer = new AdaptiveProducer<>(this::eventProducer);
+        } else {
+            profile = ProducerProfile.valueOf(producerProfile);
+            producer = eventProducer(profile);
+        }
+        logger.info("Event producer profile: {}", profile != null ? profile : producerProfile);
+        var publisher = new EventPublisher(producer, APP_ID, apiVersion);
+        publisher.setProfile(profile);
+        return publisher;
+    }
+
+    private Producer<String, Event> eventProducer(ProducerProfile profile) {
         Properties producerProps = new Properties();
-        producerProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapAddress);
+        producerProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG,
+            streamsProperties().getKafka().getBootstrapAddress());
         producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
         producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonPojoSerde.class.getName());
-        producerProps.put(ProducerConfig.CLIENT_ID_CONFIG, APP_ID);
-        var kafkaProducer = new KafkaProducer<String, Event>(producerProps);
-        return new EventPublisher(kafkaProducer, APP_ID, apiVersion);
+        producerProps.put(ProducerConfig.CLIENT_ID_CONFIG, APP_ID + "-" + profile.name().toLowerCase());
+        producerProps.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, AggregatePartitioner.class.getName());
+        return new KafkaProducer<>(profile.configure(producerProps));
     }
 
     public static void main(String[] args) {
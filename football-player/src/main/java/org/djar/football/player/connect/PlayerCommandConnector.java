@@ -1,6 +1,5 @@
 package org.djar.football.player.connect;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.Consumed;
 import org.apache.kafka.streams.KeyValue;
@@ -8,9 +7,10 @@ import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.Produced;
 import org.djar.football.model.event.PlayerStartedCareer;
+import org.djar.football.stream.DebeziumEnvelope;
+import org.djar.football.stream.DebeziumEnvelopeDeserializer;
 import org.djar.football.stream.EventPublisher;
-import org.djar.football.stream.JsonNodeSerde;
-import org.djar.football.stream.JsonPojoSerde;
+import org.djar.football.stream.SerdeRegistry;
 import org.djar.football.util.Topics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,37 +29,37 @@ public class PlayerCommandConnector {
     }
 
     public void build(StreamsBuilder builder) {
-        KStream<byte[], JsonNode> playerSourceStream = builder.stream(
-                CONNECT_PLAYERS_TOPIC, Consumed.with(Serdes.ByteArray(), new JsonNodeSerde()))
-                .filter((id, json) -> creationOrSnapshot(json));
+        DebeziumEnvelopeDeserializer deserializer = new DebeziumEnvelopeDeserializer("id", "name");
+        KStream<byte[], DebeziumEnvelope> playerSourceStream = builder.stream(CONNECT_PLAYERS_TOPIC,
+                Consumed.with(Serdes.ByteArray(), Serdes.ByteArray()))
+                .mapValues(change -> deserializer.deserialize(CONNECT_PLAYERS_TOPIC, change))
+                .filter((id, change) -> creationOrSnapshot(change));
 
         playerSourceStream.foreach(this::debug);
 
         KStream<String, PlayerStartedCareer> playerReadyStream = playerSourceStream
-                .map((id, json) -> {
-                    PlayerStartedCareer event = createEvent(json);
+                .map((id, change) -> {
+                    PlayerStartedCareer event = createEvent(change);
                     return KeyValue.pair(event.getAggId(), event);
                 });
 
         playerReadyStream.to(PLAYER_STARTED_CAREER_TOPIC, Produced.with(
-                Serdes.String(), new JsonPojoSerde<>(PlayerStartedCareer.class)));
+                Serdes.String(), SerdeRegistry.serde(PlayerStartedCareer.class)));
     }
 
-    private void debug(byte[] id, JsonNode json) {
+    private void debug(byte[] id, DebeziumEnvelope change) {
         if (logger.isDebugEnabled()) {
-            logger.debug("Message received from topic {}: {}, schema: {}", CONNECT_PLAYERS_TOPIC, new String(id),
-                    json.get("schema").get("name").textValue());
+            logger.debug("Message received from topic {}: {}, op: {}", CONNECT_PLAYERS_TOPIC, new String(id),
+                    change.getOp());
         }
     }
 
-    private boolean creationOrSnapshot(JsonNode json) {
-        char op;
-        try {
-            op = json.get("payload").get("op").textValue().charAt(0);
-        } catch (Exception ex) {
-            logger.warn("Unexpected exception.", ex);
+    private boolean creationOrSnapshot(DebeziumEnvelope change) {
+        if (change == null || change.getOp() == null || change.getOp().isEmpty()) {
+            logger.warn("Unexpected message without operation type - skipped");
             return false;
         }
+        char op = change.getOp().charAt(0);
 
         // c - create (insert), r - read (in the case of a snapshot)
         if (op == 'c' || op == 'r') {
@@ -69,11 +69,8 @@ public class PlayerCommandConnector {
         return false;
     }
 
-    private PlayerStartedCareer createEvent(JsonNode json) {
-        JsonNode after = json.get("payload").get("after");
-        int playerId = after.get("id").intValue();
-        String playerName = after.get("name").textValue();
-        PlayerStartedCareer event = new PlayerStartedCareer(String.valueOf(playerId), playerName);
+    private PlayerStartedCareer createEvent(DebeziumEnvelope change) {
+        PlayerStartedCareer event = new PlayerStartedCareer(change.after("id"), change.after("name"));
         eventPublisher.fillOut(event);
         logger.debug("New {} event created: {}", event.getClass().getSimpleName(), event.getAggId());
         return event;
@@ -1,11 +1,16 @@
 package org.djar.football.player.domain;
 
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
+import org.djar.football.model.Deduplicated;
 
-public class Player {
+public class Player implements Deduplicated {
 
     private String id;
     private String name;
+    // the ids of the events applied, in at_least_once mode only
+    private Set<String> appliedEvents = new HashSet<>();
 
     private Player() {
     }
@@ -23,6 +28,11 @@ public class Player {
         return name;
     }
 
+    @Override
+    public Set<String> appliedEvents() {
+        return appliedEvents;
+    }
+
     @Override
     public String toString() {
         return name;
@@ -25,7 +25,7 @@ import org.djar.football.model.view.PlayerCards;
 import org.djar.football.model.view.PlayerGoals;
 import org.djar.football.model.view.TeamRanking;
 import org.djar.football.model.view.TopPlayers;
-import org.djar.football.stream.JsonPojoSerde;
+import org.djar.football.stream.SerdeRegistry;
 import org.djar.football.tests.utils.DockerCompose;
 import org.djar.football.tests.utils.WebSocket;
 import org.djar.football.util.Topics;
@@ -198,7 +198,7 @@ public class FootballEcosystem {
 
     public <T extends Event> List<T> waitForEvents(Class<T> type, int expectedEventCount) {
         var consumer = new KafkaConsumer<String, T>(consumerProps, new StringDeserializer(),
-                new JsonPojoSerde<T>(type));
+                SerdeRegistry.serde(type));
 
         try {
             String topic = Topics.eventTopicName(type);
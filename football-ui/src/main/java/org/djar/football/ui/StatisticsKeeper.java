@@ -11,6 +11,7 @@ import org.djar.football.model.view.PlayerGoals;
 import org.djar.football.model.view.TeamRanking;
 import org.djar.football.model.view.TopPlayers;
 import org.djar.football.stream.JsonPojoSerde;
+import org.djar.football.stream.SerdeRegistry;
 import org.djar.football.stream.StreamsUtils;
 import org.djar.football.util.Topics;
 import org.slf4j.Logger;
@@ -45,7 +46,7 @@ public class StatisticsKeeper {
     }
 
     private <T> void updateStoreAndDashboard(Class<T> viewType, String store) {
-        JsonPojoSerde serde = new JsonPojoSerde<>(viewType);
+        JsonPojoSerde<T> serde = SerdeRegistry.serde(viewType);
         streamsBuilder.stream(Topics.viewTopicName(viewType), Consumed.with(Serdes.String(), serde))
                 .peek(this::updateDashboard)
                 .groupByKey()
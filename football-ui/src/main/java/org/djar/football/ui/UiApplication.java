@@ -1,6 +1,5 @@
 package org.djar.football.ui;
 
-import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
 import org.djar.football.model.view.MatchScore;
@@ -8,13 +7,16 @@ import org.djar.football.model.view.PlayerCards;
 import org.djar.football.model.view.PlayerGoals;
 import org.djar.football.model.view.TeamRanking;
 import org.djar.football.repo.StateStoreRepository;
+import org.djar.football.stream.KafkaStreamsHealthIndicator;
 import org.djar.football.stream.KafkaStreamsStarter;
+import org.djar.football.stream.StreamsProperties;
 import org.djar.football.util.MicroserviceUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -26,49 +28,65 @@ public class UiApplication {
 
     private static final String APP_ID = MicroserviceUtils.applicationId(UiApplication.class);
 
-    @Value("${kafka.bootstrapAddress}")
-    private String kafkaBootstrapAddress;
-
-    @Value("${kafkaTimeout:60000}")
-    private long kafkaTimeout;
-
-    @Value("${streamsStartupTimeout:20000}")
-    private long streamsStartupTimeout;
+    // ms, the results served while the stores are restored (e.g. after a restart) may be that old
+    @Value("${repository.maxStaleness:60000}")
+    private long repositoryMaxStaleness;
 
     @Autowired
     private SimpMessagingTemplate stomp;
 
 
+    // kafka.*, streams.*, topics.* and wireFormat.*, the store backends unless set by streams.storeBackends
+    @Bean
+    public StreamsProperties streamsProperties() {
+        StreamsProperties properties = new StreamsProperties();
+        properties.getStreams().setStoreBackends("team_ranking_store:IN_MEMORY");
+        return properties;
+    }
+
+    // started in the background, the service is ready (see the health) when the stores are restored
     @Bean
-    public KafkaStreams kafkaStreams() {
+    public KafkaStreamsStarter kafkaStreamsStarter() {
+        StreamsProperties properties = streamsProperties();
+        properties.configure();
         StreamsBuilder streamsBuilder = new StreamsBuilder();
         StatisticsKeeper statisticsBuilder = new StatisticsKeeper(streamsBuilder, stomp);
         statisticsBuilder.build();
         Topology topology = streamsBuilder.build();
-        KafkaStreamsStarter starter = new KafkaStreamsStarter(kafkaBootstrapAddress, topology, APP_ID);
-        starter.setKafkaTimeout(kafkaTimeout);
-        starter.setStreamsStartupTimeout(streamsStartupTimeout);
-        return starter.start();
+        KafkaStreamsStarter starter = properties.starter(topology, APP_ID);
+        starter.startAsync();
+        return starter;
+    }
+
+    @Bean
+    public HealthIndicator kafkaStreamsHealthIndicator(KafkaStreamsStarter starter) {
+        return new KafkaStreamsHealthIndicator(starter);
     }
 
     @Bean
     public StateStoreRepository<MatchScore> matchScoresRepo() {
-        return new StateStoreRepository<>(kafkaStreams(), StatisticsKeeper.MATCH_SCORES_STORE);
+        return repository(StatisticsKeeper.MATCH_SCORES_STORE);
     }
 
     @Bean
     public StateStoreRepository<TeamRanking> teamRankingRepo() {
-        return new StateStoreRepository<>(kafkaStreams(), StatisticsKeeper.TEAM_RANKING_STORE);
+        return repository(StatisticsKeeper.TEAM_RANKING_STORE);
     }
 
     @Bean
     public StateStoreRepository<PlayerGoals> playerGoalsRepo() {
-        return new StateStoreRepository<>(kafkaStreams(), StatisticsKeeper.PLAYER_GOALS_STORE);
+        return repository(StatisticsKeeper.PLAYER_GOALS_STORE);
     }
 
     @Bean
     public StateStoreRepository<PlayerCards> playerCardsRepo() {
-        return new StateStoreRepository<>(kafkaStreams(), StatisticsKeeper.PLAYER_CARDS_STORE);
+        return repository(StatisticsKeeper.PLAYER_CARDS_STORE);
+    }
+
+    private <T> StateStoreRepository<T> repository(String storeName) {
+        StateStoreRepository<T> repository = new StateStoreRepository<>(kafkaStreamsStarter(), storeName);
+        repository.setMaxStaleness(repositoryMaxStaleness);
+        return repository;
     }
 
     public static void main(String[] args) {
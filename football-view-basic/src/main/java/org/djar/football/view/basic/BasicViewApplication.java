@@ -1,14 +1,24 @@
 package org.djar.football.view.basic;
 
-import org.apache.kafka.streams.KafkaStreams;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
+import org.djar.football.repo.KafkaIdDictionary;
+import org.djar.football.stream.KafkaStreamsHealthIndicator;
 import org.djar.football.stream.KafkaStreamsStarter;
+import org.djar.football.stream.StreamThreadUtilization;
+import org.djar.football.stream.StreamsProperties;
 import org.djar.football.util.MicroserviceUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.CompositeHealthIndicator;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.OrderedHealthAggregator;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
@@ -19,24 +29,81 @@ public class BasicViewApplication {
 
     private static final String APP_ID = MicroserviceUtils.applicationId(BasicViewApplication.class);
 
-    @Value("${kafka.bootstrapAddress}")
-    private String kafkaBootstrapAddress;
+    @Value("${idDictionary.enabled:false}")
+    private boolean idDictionaryEnabled;
 
-    @Value("${kafkaTimeout:60000}")
-    private long kafkaTimeout;
+    // null if not enabled
+    private KafkaIdDictionary idDictionary;
 
-    @Value("${streamsStartupTimeout:20000}")
-    private long streamsStartupTimeout;
+    // kafka.*, streams.*, topics.* and wireFormat.*, the store backends unless set by streams.storeBackends
+    @Bean
+    public StreamsProperties streamsProperties() {
+        StreamsProperties properties = new StreamsProperties();
+        properties.getStreams().setStoreBackends("team_ranking_store:IN_MEMORY");
+        return properties;
+    }
 
+    // started in the background, the service is ready (see the health) when the stores are restored
     @Bean
-    public KafkaStreams kafkaStreams() {
+    public KafkaStreamsStarter kafkaStreamsStarter() {
+        StreamsProperties properties = streamsProperties();
+        properties.configure();
         StreamsBuilder streamsBuilder = new StreamsBuilder();
-        new StatisticsBuilder(streamsBuilder).build();
+        StatisticsBuilder statisticsBuilder = new StatisticsBuilder(streamsBuilder);
+
+        if (idDictionaryEnabled) {
+            idDictionary = idDictionary();
+            statisticsBuilder.setIdDictionary(idDictionary);
+        }
+        statisticsBuilder.build();
         Topology topology = streamsBuilder.build();
-        KafkaStreamsStarter starter = new KafkaStreamsStarter(kafkaBootstrapAddress, topology, APP_ID);
-        starter.setKafkaTimeout(kafkaTimeout);
-        starter.setStreamsStartupTimeout(streamsStartupTimeout);
-        return starter.start();
+        KafkaStreamsStarter starter = properties.starter(topology, APP_ID);
+
+        // the keys of the stores are read through the dictionary, it is loaded first
+        if (idDictionary != null) {
+            starter.startAsync(idDictionary.whenLoaded());
+        } else {
+            starter.startAsync();
+        }
+        return starter;
+    }
+
+    @Bean
+    public HealthIndicator kafkaStreamsHealthIndicator(KafkaStreamsStarter starter) {
+        HealthIndicator streams = new KafkaStreamsHealthIndicator(starter);
+
+        if (idDictionary == null) {
+            return streams;
+        }
+        // the assigner runs in this service, the dictionary loading is reported by the streams waiting for it
+        Map<String, HealthIndicator> indicators = new LinkedHashMap<>();
+        indicators.put("streams", streams);
+        indicators.put("idDictionaryAssigner", new KafkaStreamsHealthIndicator(idDictionary.getAssigner()));
+        return new CompositeHealthIndicator(new OrderedHealthAggregator(), indicators);
+    }
+
+    @Bean
+    public MeterBinder streamThreadMetrics(KafkaStreamsStarter starter) {
+        StreamThreadUtilization utilization = new StreamThreadUtilization(APP_ID);
+
+        // the threads are created by Kafka Streams on start
+        return registry -> starter.whenStarted().thenRun(() -> {
+            for (String thread : utilization.getThreads()) {
+                Gauge.builder("football.streams.threadUtilization", utilization, u -> u.getUtilization(thread))
+                    .description("CPU time of the stream thread divided by the elapsed time")
+                    .tag("thread", thread)
+                    .register(registry);
+            }
+        });
+    }
+
+    private KafkaIdDictionary idDictionary() {
+        StreamsProperties properties = streamsProperties();
+        KafkaIdDictionary dictionary = new KafkaIdDictionary(properties.getKafka().getBootstrapAddress(),
+            properties.getKafkaTimeout());
+        Runtime.getRuntime().addShutdownHook(new Thread(dictionary::close));
+        // this service is the only writer of club and player ids, both are started in the background
+        return dictionary.startAssigner().start();
     }
 
     public static void main(String[] args) {
@@ -4,10 +4,12 @@ import static org.apache.kafka.common.serialization.Serdes.String;
 import static org.apache.kafka.streams.Consumed.with;
 import static org.apache.kafka.streams.KeyValue.pair;
 import static org.apache.kafka.streams.kstream.Joined.with;
+import static org.djar.football.stream.StreamsUtils.assignIds;
 import static org.djar.football.stream.StreamsUtils.materialized;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.kstream.JoinWindows;
@@ -15,6 +17,7 @@ import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.KTable;
 import org.apache.kafka.streams.kstream.Produced;
 import org.apache.kafka.streams.kstream.Serialized;
+import org.djar.football.model.Deduplicated;
 import org.djar.football.model.event.CardReceived;
 import org.djar.football.model.event.GoalScored;
 import org.djar.football.model.event.MatchFinished;
@@ -24,7 +27,13 @@ import org.djar.football.model.view.MatchScore;
 import org.djar.football.model.view.PlayerCards;
 import org.djar.football.model.view.PlayerGoals;
 import org.djar.football.model.view.TeamRanking;
+import org.djar.football.repo.IdDictionary;
+import org.djar.football.stream.DictionaryKeySerde;
 import org.djar.football.stream.JsonPojoSerde;
+import org.djar.football.stream.LazyEvent;
+import org.djar.football.stream.LazyEventSerde;
+import org.djar.football.stream.SerdeRegistry;
+import org.djar.football.stream.StreamsUtils;
 import org.djar.football.util.Topics;
 
 /**
@@ -49,18 +58,23 @@ public class StatisticsBuilder {
     public static final String PLAYER_GOALS_TOPIC = Topics.viewTopicName(PlayerGoals.class);
     public static final String PLAYER_CARDS_TOPIC = Topics.viewTopicName(PlayerCards.class);
 
-    private final JsonPojoSerde<MatchStarted> matchStartedSerde = new JsonPojoSerde<>(MatchStarted.class);
-    private final JsonPojoSerde<MatchFinished> matchFinishedSerde = new JsonPojoSerde<>(MatchFinished.class);
-    private final JsonPojoSerde<GoalScored> goalScoredSerde = new JsonPojoSerde<>(GoalScored.class);
-    private final JsonPojoSerde<CardReceived> cardReceivedSerde = new JsonPojoSerde<>(CardReceived.class);
-    private final JsonPojoSerde<PlayerStartedCareer> playerSerde = new JsonPojoSerde<>(PlayerStartedCareer.class);
-    private final JsonPojoSerde<MatchScore> matchScoreSerde = new JsonPojoSerde<>(MatchScore.class);
-    private final JsonPojoSerde<TeamRanking> rankingSerde = new JsonPojoSerde<>(TeamRanking.class);
-    private final JsonPojoSerde<PlayerGoals> playerGoalsSerde = new JsonPojoSerde<>(PlayerGoals.class);
-    private final JsonPojoSerde<PlayerCards> playerCardsSerde = new JsonPojoSerde<>(PlayerCards.class);
+    private final JsonPojoSerde<MatchStarted> matchStartedSerde = SerdeRegistry.serde(MatchStarted.class);
+    private final JsonPojoSerde<MatchFinished> matchFinishedSerde = SerdeRegistry.serde(MatchFinished.class);
+    private final LazyEventSerde<GoalScored> goalScoredSerde = SerdeRegistry.lazySerde(GoalScored.class);
+    private final LazyEventSerde<CardReceived> cardReceivedSerde = SerdeRegistry.lazySerde(CardReceived.class);
+    private final JsonPojoSerde<PlayerStartedCareer> playerSerde = SerdeRegistry.serde(PlayerStartedCareer.class);
+    private final JsonPojoSerde<MatchScore> matchScoreSerde = SerdeRegistry.serde(MatchScore.class);
+    private final JsonPojoSerde<TeamRanking> rankingSerde = SerdeRegistry.serde(TeamRanking.class);
+    private final JsonPojoSerde<PlayerGoals> playerGoalsSerde = SerdeRegistry.serde(PlayerGoals.class);
+    private final JsonPojoSerde<PlayerCards> playerCardsSerde = SerdeRegistry.serde(PlayerCards.class);
 
     private final StreamsBuilder builder;
 
+    // club and player ids in the stores and grouping topics
+    private Serde<String> idSerde = String();
+    private IdDictionary idDictionary;
+    private boolean deduplication;
+
     private long maxMatchDuration = (
             /* standard time */
             (45 + 15 + 45)
@@ -84,24 +98,42 @@ public class StatisticsBuilder {
         this.maxMatchDuration = maxMatchDuration;
     }
 
+    /**
+     * Stores club and player ids as numbers assigned by the dictionary.
+     */
+    public void setIdDictionary(IdDictionary dictionary) {
+        this.idSerde = dictionary != null ? new DictionaryKeySerde(dictionary) : String();
+        this.idDictionary = dictionary;
+    }
+
+    /**
+     * Builds the topology. In at_least_once mode (see {@link StreamsUtils#setDeduplication}) the reduced records
+     * carry the ids of the goals, cards and matches, and the aggregates keep the ids applied (see
+     * {@link Deduplicated}), so the records processed again after a failure are not counted twice.
+     */
     public void build() {
+        deduplication = StreamsUtils.isDeduplication();
+
         // a common stream for match and player statistics (can't create 2 streams from a single topic)
-        KStream<String, GoalScored> goalStream = builder
+        // goals and cards are decoded lazily, the repartitioned records are passed through without re-encoding
+        KStream<String, LazyEvent<GoalScored>> goalStream = builder
                 .stream(GOAL_SCORED_TOPIC, with(String(), goalScoredSerde));
 
         buildMatchStatistics(goalStream);
         buildPlayerStatistics(goalStream);
     }
 
-    private void buildMatchStatistics(KStream<String, GoalScored> goalStream) {
+    private void buildMatchStatistics(KStream<String, LazyEvent<GoalScored>> goalStream) {
         KStream<String, MatchStarted> matchStartedStream = builder
                 .stream(MATCH_STARTED_TOPIC, with(String(), matchStartedSerde));
 
         KStream<String, MatchFinished> matchFinishedStream = builder
                 .stream(MATCH_FINISHED_TOPIC, with(String(), matchFinishedSerde));
 
+        // the match without goals yet is recognized by the match id
         KStream<String, MatchScore> scoreStream = matchStartedStream
-                .leftJoin(goalStream, (match, goal) -> new MatchScore(match).goal(goal),
+                .leftJoin(goalStream, (match, goal) -> applied(new MatchScore(match).goal(goal != null ? goal.get()
+                    : null), goal != null ? goal.field("goalId") : match.getMatchId()),
                     JoinWindows.of(maxMatchDuration), with(String(), matchStartedSerde, goalScoredSerde)
         );
 
@@ -119,37 +151,49 @@ public class StatisticsBuilder {
         KStream<String, TeamRanking> rankingStream = finalScoreStream
                 .flatMap((clubId, matchScore) -> {
                     Collection<KeyValue<String, TeamRanking>> result = new ArrayList<>(2);
-                    result.add(pair(matchScore.getHomeClubId(), matchScore.homeRanking()));
-                    result.add(pair(matchScore.getAwayClubId(), matchScore.awayRanking()));
+                    result.add(pair(matchScore.getHomeClubId(),
+                        applied(matchScore.homeRanking(), matchScore.getMatchId())));
+                    result.add(pair(matchScore.getAwayClubId(),
+                        applied(matchScore.awayRanking(), matchScore.getMatchId())));
                     return result;
                 });
 
-        KTable<String, TeamRanking> rankingTable = rankingStream
-                .groupByKey(Serialized.with(String(), rankingSerde))
-                .reduce(TeamRanking::aggregate, materialized(TEAM_RANKING_STORE, rankingSerde));
+        KTable<String, TeamRanking> rankingTable = assignIds(builder, rankingStream, "team_ranking_unassigned",
+                idDictionary, rankingSerde)
+                .groupByKey(Serialized.with(idSerde, rankingSerde))
+                .reduce(TeamRanking::aggregate, materialized(TEAM_RANKING_STORE, idSerde, rankingSerde));
 
         // publish changes to a view topic
         rankingTable.toStream().to(TEAM_RANKING_TOPIC, Produced.with(String(), rankingSerde));
     }
 
-    private void buildPlayerStatistics(KStream<String, GoalScored> goalStream) {
+    private void buildPlayerStatistics(KStream<String, LazyEvent<GoalScored>> goalStream) {
         KTable<String, PlayerStartedCareer> playerTable = builder
                 .table(PLAYER_STARTED_TOPIC, with(String(), playerSerde));
 
-        KTable<String, PlayerGoals> playerGoalsTable = goalStream
-                .selectKey((matchId, goal) -> goal.getScorerId())
-                .leftJoin(playerTable, (goal, player) -> new PlayerGoals(player).goal(goal),
-                    with(String(), goalScoredSerde, playerSerde))
-                .groupByKey(Serialized.with(String(), playerGoalsSerde))
-                .reduce(PlayerGoals::aggregate, materialized(PLAYER_GOALS_STORE, playerGoalsSerde));
+        // the numbers of the players are assigned before the join, which repartitions the records anyway
+        KStream<String, PlayerGoals> playerGoalStream = assignIds(builder, goalStream
+                .selectKey((matchId, goal) -> goal.field("scorerId")),
+                "player_goals_unassigned", idDictionary, goalScoredSerde)
+                .leftJoin(playerTable,
+                    (goal, player) -> applied(new PlayerGoals(player).goal(goal.get()), goal.field("goalId")),
+                    with(String(), goalScoredSerde, playerSerde));
 
-        KTable<String, PlayerCards> playerCardsTable = builder
+        KTable<String, PlayerGoals> playerGoalsTable = playerGoalStream
+                .groupByKey(Serialized.with(idSerde, playerGoalsSerde))
+                .reduce(PlayerGoals::aggregate, materialized(PLAYER_GOALS_STORE, idSerde, playerGoalsSerde));
+
+        KStream<String, PlayerCards> playerCardStream = assignIds(builder, builder
                 .stream(CARD_RECEIVED_TOPIC, with(String(), cardReceivedSerde))
-                .selectKey((matchId, card) -> card.getReceiverId())
-                .leftJoin(playerTable, (card, player) -> new PlayerCards(player).card(card),
-                    with(String(), cardReceivedSerde, playerSerde))
-                .groupByKey(Serialized.with(String(), playerCardsSerde))
-                .reduce(PlayerCards::aggregate, materialized(PLAYER_CARDS_STORE, playerCardsSerde));
+                .selectKey((matchId, card) -> card.field("receiverId")),
+                "player_cards_unassigned", idDictionary, cardReceivedSerde)
+                .leftJoin(playerTable,
+                    (card, player) -> applied(new PlayerCards(player).card(card.get()), card.field("cardId")),
+                    with(String(), cardReceivedSerde, playerSerde));
+
+        KTable<String, PlayerCards> playerCardsTable = playerCardStream
+                .groupByKey(Serialized.with(idSerde, playerCardsSerde))
+                .reduce(PlayerCards::aggregate, materialized(PLAYER_CARDS_STORE, idSerde, playerCardsSerde));
 
         // publish changes to a view topic
         playerCardsTable.toStream().to(PLAYER_CARDS_TOPIC, Produced.with(String(), playerCardsSerde));
@@ -157,4 +201,12 @@ public class StatisticsBuilder {
         KStream<String, PlayerGoals> playerGoalsStream = playerGoalsTable.toStream();
         playerGoalsStream.to(PLAYER_GOALS_TOPIC, Produced.with(String(), playerGoalsSerde));
     }
+
+    // the record applied to an aggregate once, recognized by the id
+    private <V extends Deduplicated> V applied(V value, String id) {
+        if (deduplication) {
+            value.markApplied(id);
+        }
+        return value;
+    }
 }
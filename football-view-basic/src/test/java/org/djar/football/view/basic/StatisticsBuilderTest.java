@@ -6,10 +6,12 @@ import static org.djar.football.view.basic.StatisticsBuilder.PLAYER_CARDS_STORE;
 import static org.djar.football.view.basic.StatisticsBuilder.PLAYER_GOALS_STORE;
 import static org.djar.football.view.basic.StatisticsBuilder.TEAM_RANKING_STORE;
 
+import java.io.IOException;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
 import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
 import org.djar.football.model.event.CardReceived;
+import org.djar.football.model.event.Event;
 import org.djar.football.model.event.GoalScored;
 import org.djar.football.model.event.MatchFinished;
 import org.djar.football.model.event.MatchStarted;
@@ -18,6 +20,10 @@ import org.djar.football.model.view.MatchScore;
 import org.djar.football.model.view.PlayerCards;
 import org.djar.football.model.view.PlayerGoals;
 import org.djar.football.model.view.TeamRanking;
+import org.djar.football.repo.IdDictionary;
+import org.djar.football.repo.LocalIdDictionary;
+import org.djar.football.stream.SerdeRegistry;
+import org.djar.football.stream.StreamsUtils;
 import org.djar.football.test.StreamsTester;
 import org.junit.After;
 import org.junit.Before;
@@ -29,10 +35,16 @@ public class StatisticsBuilderTest {
 
     @Before
     public void setUp() {
+        setUp(null);
+    }
+
+    private void setUp(IdDictionary dictionary) {
         tester = new StreamsTester(getClass().getName());
 
         StreamsBuilder streamsBuilder = new StreamsBuilder();
-        new StatisticsBuilder(streamsBuilder).build();
+        StatisticsBuilder statisticsBuilder = new StatisticsBuilder(streamsBuilder);
+        statisticsBuilder.setIdDictionary(dictionary);
+        statisticsBuilder.build();
 
         Topology topology = streamsBuilder.build();
         tester.setUp(topology);
@@ -103,8 +115,56 @@ public class StatisticsBuilderTest {
         assertThat(dDarylMurphyCards.getRedCards()).isEqualTo(1);
     }
 
+    @Test
+    public void testStatisticsWithIdDictionary() throws Exception {
+        tester.close();
+        setUp(new LocalIdDictionary());
+
+        tester.sendEvents(getClass().getResource("player-started-career.json"), PlayerStartedCareer.class);
+        tester.sendEvents(getClass().getResource("match-started.json"), MatchStarted.class);
+        tester.sendEvents(getClass().getResource("goal-scored.json"), GoalScored.class);
+        tester.sendEvents(getClass().getResource("match-finished.json"), MatchFinished.class);
+
+        ReadOnlyKeyValueStore<String, PlayerGoals> goalsStore = tester.getStore(PLAYER_GOALS_STORE);
+        ReadOnlyKeyValueStore<String, TeamRanking> rankingStore = tester.getStore(TEAM_RANKING_STORE);
+
+        assertThat(goalsStore.get("A. Andreas Bouchalakis").getGoals()).isEqualTo(2);
+        assertThat(rankingStore.get("Nottingham Forest").getPoints()).isEqualTo(6);
+        assertThat(tester.count(rankingStore)).isEqualTo(24);
+    }
+
+    @Test
+    public void testGoalsCountedOnce() throws Exception {
+        tester.close();
+        StreamsUtils.setDeduplication(true);
+        setUp(null);
+
+        tester.sendEvents(getClass().getResource("player-started-career.json"), PlayerStartedCareer.class);
+        send(MatchStarted[].class, "match-started.json");
+        // sent again with the same record timestamps, as after a failure in at_least_once mode
+        send(GoalScored[].class, "goal-scored.json");
+        send(GoalScored[].class, "goal-scored.json");
+        send(MatchFinished[].class, "match-finished.json");
+        send(MatchFinished[].class, "match-finished.json");
+
+        ReadOnlyKeyValueStore<String, PlayerGoals> goalsStore = tester.getStore(PLAYER_GOALS_STORE);
+        ReadOnlyKeyValueStore<String, MatchScore> matchStore = tester.getStore(MATCH_SCORES_STORE);
+        ReadOnlyKeyValueStore<String, TeamRanking> rankingStore = tester.getStore(TEAM_RANKING_STORE);
+
+        assertThat(goalsStore.get("A. Andreas Bouchalakis").getGoals()).isEqualTo(2);
+        assertThat(matchStore.get("15").getHomeGoals()).isEqualTo(3);
+        assertThat(matchStore.get("15").getAwayGoals()).isEqualTo(4);
+        assertThat(rankingStore.get("Nottingham Forest").getGoalsFor()).isEqualTo(5);
+        assertThat(rankingStore.get("Nottingham Forest").getPoints()).isEqualTo(6);
+    }
+
+    private void send(Class<? extends Event[]> type, String file) throws IOException {
+        tester.sendEvents(1000, SerdeRegistry.mapper().readValue(getClass().getResource(file), type));
+    }
+
     @After
     public void tearDown() throws Exception {
         tester.close();
+        StreamsUtils.setDeduplication(false);
     }
 }
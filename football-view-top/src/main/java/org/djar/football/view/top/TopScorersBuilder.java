@@ -12,6 +12,7 @@ import org.apache.kafka.streams.kstream.Serialized;
 import org.djar.football.model.view.PlayerGoals;
 import org.djar.football.model.view.TopPlayers;
 import org.djar.football.stream.JsonPojoSerde;
+import org.djar.football.stream.SerdeRegistry;
 import org.djar.football.util.Topics;
 
 /**
@@ -24,8 +25,8 @@ public class TopScorersBuilder {
     public static final String PLAYER_GOALS_TOPIC = Topics.viewTopicName(PlayerGoals.class);
     public static final String TOP_SCORERS_TOPIC = Topics.viewTopicName(TopPlayers.class);
 
-    private final JsonPojoSerde<PlayerGoals> playerGoalsSerde = new JsonPojoSerde<>(PlayerGoals.class);
-    private final JsonPojoSerde<TopPlayers> topSerde = new JsonPojoSerde<>(TopPlayers.class);
+    private final JsonPojoSerde<PlayerGoals> playerGoalsSerde = SerdeRegistry.serde(PlayerGoals.class);
+    private final JsonPojoSerde<TopPlayers> topSerde = SerdeRegistry.serde(TopPlayers.class);
 
     private final StreamsBuilder builder;
 
@@ -1,14 +1,15 @@
 package org.djar.football.view.top;
 
-import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
+import org.djar.football.stream.KafkaStreamsHealthIndicator;
 import org.djar.football.stream.KafkaStreamsStarter;
+import org.djar.football.stream.StreamsProperties;
 import org.djar.football.util.MicroserviceUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
@@ -19,24 +20,28 @@ public class TopViewApplication {
 
     private static final String APP_ID = MicroserviceUtils.applicationId(TopViewApplication.class);
 
-    @Value("${kafka.bootstrapAddress}")
-    private String kafkaBootstrapAddress;
-
-    @Value("${kafkaTimeout:60000}")
-    private long kafkaTimeout;
-
-    @Value("${streamsStartupTimeout:20000}")
-    private long streamsStartupTimeout;
+    // kafka.*, streams.*, topics.* and wireFormat.*
+    @Bean
+    public StreamsProperties streamsProperties() {
+        return new StreamsProperties();
+    }
 
+    // started in the background, the service is ready (see the health) when the stores are restored
     @Bean
-    public KafkaStreams kafkaStreams() {
+    public KafkaStreamsStarter kafkaStreamsStarter() {
+        StreamsProperties properties = streamsProperties();
+        properties.configure();
         StreamsBuilder streamsBuilder = new StreamsBuilder();
         new TopScorersBuilder(streamsBuilder).build();
         Topology topology = streamsBuilder.build();
-        KafkaStreamsStarter starter = new KafkaStreamsStarter(kafkaBootstrapAddress, topology, APP_ID);
-        starter.setKafkaTimeout(kafkaTimeout);
-        starter.setStreamsStartupTimeout(streamsStartupTimeout);
-        return starter.start();
+        KafkaStreamsStarter starter = properties.starter(topology, APP_ID);
+        starter.startAsync();
+        return starter;
+    }
+
+    @Bean
+    public HealthIndicator kafkaStreamsHealthIndicator(KafkaStreamsStarter starter) {
+        return new KafkaStreamsHealthIndicator(starter);
     }
 
     public static void main(String[] args) {